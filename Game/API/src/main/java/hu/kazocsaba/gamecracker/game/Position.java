@@ -38,6 +38,54 @@ public abstract class Position<
    */
   public abstract List<M> getMoves();
 
+  /**
+   * Returns the number of valid moves in this position. The default implementation returns
+   * {@code getMoves().size()}; subclasses are encouraged to override it without creating the list
+   * of moves.
+   *
+   * @return the number of valid moves in this position
+   */
+  public int getMoveCount() {
+    return getMoves().size();
+  }
+
+  /**
+   * Returns a valid move by its index. The moves are indexed in the order returned by
+   * {@link #getMoves()}, so the index of a move can serve as its compact encoding, which is only
+   * meaningful in this position. The default implementation returns
+   * {@code getMoves().get(index)}.
+   *
+   * @param index the index of the move
+   * @return the move with the specified index
+   * @throws IndexOutOfBoundsException if {@code index < 0 || index >= getMoveCount()}
+   */
+  public M getMove(int index) {
+    return getMoves().get(index);
+  }
+
+  /**
+   * Returns the index of a move among the valid moves of this position. The default implementation
+   * returns {@code getMoves().indexOf(move)}.
+   *
+   * @param move a move
+   * @return the index of the move, or -1 if the move is not valid in this position
+   */
+  public int getMoveIndex(M move) {
+    return getMoves().indexOf(move);
+  }
+
+  /**
+   * Applies a move specified by its index, and returns the position following the move. The result
+   * is equal to {@code move(getMove(index))}, which is what the default implementation returns.
+   *
+   * @param index the index of the move
+   * @return the position after the move
+   * @throws IndexOutOfBoundsException if {@code index < 0 || index >= getMoveCount()}
+   */
+  public P moveByIndex(int index) {
+    return move(getMove(index));
+  }
+
   /**
    * Applies a move in this position and returns the object describing the position following the
    * move.
@@ -49,6 +97,18 @@ public abstract class Position<
    */
   public abstract P move(M move);
 
+  /**
+   * Creates a search cursor starting at this position. The default implementation returns a cursor
+   * which applies the moves by {@link #moveByIndex(int)}, and keeps the positions along its path in
+   * a stack. Games can provide cursors which modify their state in place instead.
+   *
+   * @return a new search cursor at this position
+   */
+  @SuppressWarnings("unchecked")
+  public SearchCursor<P, M, T> createCursor() {
+    return new PositionStackCursor<>((P) this);
+  }
+
   /**
    * Transforms this position with the specified transformation and returns the result.
    *
@@ -84,6 +144,55 @@ public abstract class Position<
    */
   public abstract T getTransformationTo(P target);
 
+  /**
+   * Finds the transformation leading to the canonical form of this position. The canonical form is
+   * a representative of the positions related to each other by transformations: if
+   * {@code p1.getTransformationTo(p2) != null}, then the canonical forms of {@code p1} and
+   * {@code p2} are equal. Positions with equal canonical forms can therefore be found by hash
+   * lookups, without comparing them pairwise with {@link #getTransformationTo(Position)}.
+   *
+   * <p>Supporting canonical forms is optional. The default implementation returns {@code null},
+   * indicating that they are not supported. Either all positions of a game support canonical forms,
+   * or none of them do.
+   *
+   * @return a transformation {@code trans} for which {@code this.transform(trans)} is the canonical
+   * form of this position, or {@code null} if canonical forms are not supported
+   */
+  public T getCanonicalTransformation() {
+    return null;
+  }
+
+  /**
+   * Returns the canonical form of this position. The default implementation applies the
+   * {@link #getCanonicalTransformation() canonical transformation} to this position.
+   *
+   * @return the canonical form of this position, or {@code null} if canonical forms are not
+   * supported
+   */
+  public P getCanonicalForm() {
+    T t = getCanonicalTransformation();
+    return t == null ? null : transform(t);
+  }
+
+  /**
+   * Returns a 64-bit key of this position which does not change when a transformation is applied:
+   * if {@code p1.getTransformationTo(p2) != null}, then
+   * {@code p1.getInvariantKey() == p2.getInvariantKey()}. The keys of positions not related by a
+   * transformation differ with high probability.
+   *
+   * <p>The default implementation returns the hash code of the
+   * {@link #getCanonicalForm() canonical form}, or 0 if canonical forms are not supported.
+   * Implementations may compute the key more efficiently, for example by maintaining Zobrist keys
+   * of all the transformed images of the position through {@link #move(Move)} and
+   * {@link #transform(Transformation)}.
+   *
+   * @return the invariant key of this position
+   */
+  public long getInvariantKey() {
+    P canonicalForm = getCanonicalForm();
+    return canonicalForm == null ? 0 : canonicalForm.hashCode();
+  }
+
   /**
    * Returns whether the specified object is "equal to" this one. Beside the general contract of the
    * equals method, it is required that if two positions {@code p1} and {@code p2} are equal, then
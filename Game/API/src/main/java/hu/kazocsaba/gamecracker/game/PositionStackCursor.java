@@ -0,0 +1,65 @@
+package hu.kazocsaba.gamecracker.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The default search cursor, keeping the immutable positions along the current path in a stack.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+final class PositionStackCursor<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements SearchCursor<P, M, T> {
+
+  private final List<P> positions = new ArrayList<>();
+
+  PositionStackCursor(P position) {
+    positions.add(position);
+  }
+
+  private P getPosition() {
+    return positions.get(positions.size() - 1);
+  }
+
+  @Override
+  public GameStatus getStatus() {
+    return getPosition().getStatus();
+  }
+
+  @Override
+  public int getMoveCount() {
+    return getPosition().getMoveCount();
+  }
+
+  @Override
+  public M getMove(int index) {
+    return getPosition().getMove(index);
+  }
+
+  @Override
+  public void move(int moveIndex) {
+    positions.add(getPosition().moveByIndex(moveIndex));
+  }
+
+  @Override
+  public void back() {
+    if (positions.size() == 1) {
+      throw new IllegalStateException("No move to undo");
+    }
+    positions.remove(positions.size() - 1);
+  }
+
+  @Override
+  public int getLength() {
+    return positions.size() - 1;
+  }
+
+  @Override
+  public P toPosition() {
+    return getPosition();
+  }
+}
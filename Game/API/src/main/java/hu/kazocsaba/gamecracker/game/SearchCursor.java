@@ -0,0 +1,75 @@
+package hu.kazocsaba.gamecracker.game;
+
+/**
+ * A mutable position for walking the game tree. Unlike a {@link Position}, a cursor applies the
+ * moves in place, and can undo them, so a depth-first search does not need a new position object
+ * for every node it visits. When a node has to be stored, for example in a graph, the current
+ * position of the cursor can be obtained by {@link #toPosition()}.
+ *
+ * <p>A cursor is created by {@link Position#createCursor()}. The moves are indexed the same way as
+ * in the corresponding positions. Cursors are not thread-safe.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+public interface SearchCursor<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  /**
+   * Returns the status of the current position. The return value is equal to
+   * {@code toPosition().getStatus()}.
+   *
+   * @return the status of the current position
+   */
+  public GameStatus getStatus();
+
+  /**
+   * Returns the number of valid moves in the current position. The return value is equal to
+   * {@code toPosition().getMoveCount()}.
+   *
+   * @return the number of valid moves in the current position
+   */
+  public int getMoveCount();
+
+  /**
+   * Returns a valid move in the current position. The return value is equal to
+   * {@code toPosition().getMove(index)}.
+   *
+   * @param index the index of the move
+   * @return the specified move
+   * @throws IndexOutOfBoundsException if the index is not valid
+   */
+  public M getMove(int index);
+
+  /**
+   * Applies a move in the current position.
+   *
+   * @param moveIndex the index of the move to make
+   * @throws IndexOutOfBoundsException if the index is not valid
+   */
+  public void move(int moveIndex);
+
+  /**
+   * Undoes the last move, returning the cursor to the previous position.
+   *
+   * @throws IllegalStateException if no moves have been made ({@code getLength() == 0})
+   */
+  public void back();
+
+  /**
+   * Returns the number of moves made from the position the cursor was created for, and not undone
+   * yet.
+   *
+   * @return the number of moves
+   */
+  public int getLength();
+
+  /**
+   * Returns the current position as an immutable position object.
+   *
+   * @return the current position
+   */
+  public P toPosition();
+}
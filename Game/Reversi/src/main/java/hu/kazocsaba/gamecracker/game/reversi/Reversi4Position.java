@@ -16,6 +16,8 @@ import java.io.IOException;
  */
 public class Reversi4Position extends ReversiPosition<Reversi4Position, Reversi4Move> {
 
+  private static final ZobristTable ZOBRIST_TABLE = new ZobristTable(4);
+
   static final PositionSerializer<Reversi4Position> SERIALIZER =
       new PositionSerializer<Reversi4Position>() {
 
@@ -49,7 +51,12 @@ public class Reversi4Position extends ReversiPosition<Reversi4Position, Reversi4
   };
 
   Reversi4Position(GameStatus status, ReversiBoard board) {
-    super(status, board);
+    this(status, board, getMoveMask(board, status, 4), ZOBRIST_TABLE.getBoardKey(board), 0);
+  }
+
+  Reversi4Position(
+      GameStatus status, ReversiBoard board, long moveMask, long boardKey, long invariantKey) {
+    super(status, board, moveMask, boardKey, invariantKey);
   }
 
   @Override
@@ -63,8 +70,14 @@ public class Reversi4Position extends ReversiPosition<Reversi4Position, Reversi4
   }
 
   @Override
-  Reversi4Position create(ReversiBoard board, GameStatus status) {
-    return new Reversi4Position(status, board);
+  ZobristTable getZobristTable() {
+    return ZOBRIST_TABLE;
+  }
+
+  @Override
+  Reversi4Position create(
+      ReversiBoard board, GameStatus status, long moveMask, long boardKey, long invariantKey) {
+    return new Reversi4Position(status, board, moveMask, boardKey, invariantKey);
   }
 
 }
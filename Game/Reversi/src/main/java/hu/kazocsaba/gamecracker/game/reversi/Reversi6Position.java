@@ -16,6 +16,8 @@ import java.io.IOException;
  */
 public class Reversi6Position extends ReversiPosition<Reversi6Position, Reversi6Move> {
 
+  private static final ZobristTable ZOBRIST_TABLE = new ZobristTable(6);
+
   static final PositionSerializer<Reversi6Position> SERIALIZER =
       new PositionSerializer<Reversi6Position>() {
 
@@ -49,7 +51,12 @@ public class Reversi6Position extends ReversiPosition<Reversi6Position, Reversi6
   };
 
   Reversi6Position(GameStatus status, ReversiBoard board) {
-    super(status, board);
+    this(status, board, getMoveMask(board, status, 6), ZOBRIST_TABLE.getBoardKey(board), 0);
+  }
+
+  Reversi6Position(
+      GameStatus status, ReversiBoard board, long moveMask, long boardKey, long invariantKey) {
+    super(status, board, moveMask, boardKey, invariantKey);
   }
 
   @Override
@@ -63,8 +70,14 @@ public class Reversi6Position extends ReversiPosition<Reversi6Position, Reversi6
   }
 
   @Override
-  Reversi6Position create(ReversiBoard board, GameStatus status) {
-    return new Reversi6Position(status, board);
+  ZobristTable getZobristTable() {
+    return ZOBRIST_TABLE;
+  }
+
+  @Override
+  Reversi6Position create(
+      ReversiBoard board, GameStatus status, long moveMask, long boardKey, long invariantKey) {
+    return new Reversi6Position(status, board, moveMask, boardKey, invariantKey);
   }
 
 }
@@ -4,7 +4,9 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import hu.kazocsaba.gamecracker.InconsistencyError;
+import hu.kazocsaba.gamecracker.game.GameStatus;
 import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
 
 /**
  * A board state in Reversi.
@@ -23,6 +25,23 @@ class ReversiBoard {
 
   private long boardData1, boardData2;
 
+  /** Cells in the first column. */
+  private static final long FIRST_COLUMN = 0x0101010101010101L;
+  /** Cells in the last column. */
+  private static final long LAST_COLUMN = 0x8080808080808080L;
+  /**
+   * The eight directions, expressed as the change of the cell index in one step. Shifting along a
+   * row would wrap around to the neighbouring row, so {@link #DIRECTION_MASKS} contains the cells
+   * that can be reached in one step in each direction.
+   */
+  private static final int[] DIRECTION_SHIFTS = {1, -1, 8, -8, 9, -9, 7, -7};
+  private static final long[] DIRECTION_MASKS = {
+    ~FIRST_COLUMN, ~LAST_COLUMN, -1L, -1L, ~FIRST_COLUMN, ~LAST_COLUMN, ~LAST_COLUMN, ~FIRST_COLUMN
+  };
+  // Avoid copying the array in values() by using our own instance
+  private static final SwitchableSquareSymmetry[] TRANSFORMATIONS =
+      SwitchableSquareSymmetry.values();
+
   /**
    * Creates an empty board.
    */
@@ -218,6 +237,283 @@ class ReversiBoard {
     return false;
   }
 
+  /**
+   * Returns the cells used by a board of the specified size.
+   *
+   * @param size the size of the board
+   * @return the mask of the cells inside the board
+   */
+  static long getValidMask(int size) {
+    switch (size) {
+      case 4:
+        return 0b00001111_00001111_00001111_00001111L;
+      case 6:
+        return 0b00111111_00111111_00111111_00111111_00111111_00111111L;
+      case 8:
+        return 0b11111111_11111111_11111111_11111111_11111111_11111111_11111111_11111111L;
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  /**
+   * Returns the cells where a player has a token.
+   *
+   * @param player the player
+   * @return the mask of the cells occupied by the player
+   */
+  long getTokens(Player player) {
+    return player == Player.BLACK ? boardData2 : boardData1 & ~boardData2;
+  }
+
+  /**
+   * Returns the outcome of a game ending with this board: the player with more tokens wins.
+   *
+   * @return the final status of the game
+   */
+  GameStatus getFinalStatus() {
+    int whiteCount = Long.bitCount(getTokens(Player.WHITE));
+    int blackCount = Long.bitCount(getTokens(Player.BLACK));
+    if (whiteCount > blackCount) {
+      return GameStatus.WHITE_WINS;
+    } else if (whiteCount < blackCount) {
+      return GameStatus.BLACK_WINS;
+    } else {
+      return GameStatus.DRAW;
+    }
+  }
+
+  /**
+   * Computes all the valid moves of a player. The result has the bit {@code x + 8 * y} set if and
+   * only if {@link #isMoveValid(Player, int, int, int) isMoveValid(player, x, y, size)} returns
+   * {@code true}.
+   *
+   * @param player the player who moves
+   * @param size the size of the board
+   * @return the mask of the cells where the player can move
+   */
+  long getMoveMask(Player player, int size) {
+    long own = getTokens(player);
+    long opponent = boardData1 & ~own;
+    long empty = ~boardData1 & getValidMask(size);
+    long moves = 0;
+    for (int d = 0; d < DIRECTION_SHIFTS.length; d++) {
+      int shift = DIRECTION_SHIFTS[d];
+      long mask = DIRECTION_MASKS[d];
+      long propagator = opponent & mask;
+      long runs = fill(propagator & shift(own, shift), propagator, shift);
+      moves |= shift(runs, shift) & mask & empty;
+    }
+    return moves;
+  }
+
+  /**
+   * Computes the tokens flipped by a move. The move is valid if and only if the result is not zero.
+   *
+   * @param player the player who moves
+   * @param x the x coordinate of the move, which must be an empty cell
+   * @param y the y coordinate of the move, which must be an empty cell
+   * @return the mask of the opponent tokens flipped by the move
+   */
+  long getFlips(Player player, int x, int y) {
+    long cell = 1L << (x + 8 * y);
+    long own = getTokens(player);
+    long opponent = boardData1 & ~own;
+    long flips = 0;
+    for (int d = 0; d < DIRECTION_SHIFTS.length; d++) {
+      int shift = DIRECTION_SHIFTS[d];
+      long mask = DIRECTION_MASKS[d];
+      long propagator = opponent & mask;
+      long run = fill(propagator & shift(cell, shift), propagator, shift);
+      if ((shift(run, shift) & mask & own) != 0) {
+        flips |= run;
+      }
+    }
+    return flips;
+  }
+
+  /**
+   * Places a token and flips the captured tokens.
+   *
+   * @param player the player who moves
+   * @param x the x coordinate of the move, which must be an empty cell
+   * @param y the y coordinate of the move, which must be an empty cell
+   * @param flips the tokens flipped by the move, as returned by {@link #getFlips(Player, int, int)}
+   */
+  void play(Player player, int x, int y, long flips) {
+    long cell = 1L << (x + 8 * y);
+    // flipping a token only changes its colour bit
+    boardData1 ^= cell;
+    boardData2 ^= player == Player.BLACK ? flips | cell : flips;
+  }
+
+  /**
+   * Returns the board transformed by a symmetry.
+   *
+   * @param t the transformation
+   * @param size the size of the board
+   * @return a new board with the transformed contents
+   */
+  ReversiBoard transform(SwitchableSquareSymmetry t, int size) {
+    ReversiBoard board = new ReversiBoard();
+    board.boardData1 = transformCells(boardData1, t, size);
+    board.boardData2 = transformCells(getColourPlane(t), t, size);
+    return board;
+  }
+
+  /**
+   * Checks whether a symmetry transforms this board into another one.
+   *
+   * @param target the other board
+   * @param t the transformation
+   * @param size the size of the board
+   * @return {@code true} if {@code transform(t, size)} is equal to {@code target}
+   */
+  boolean isTransformedTo(ReversiBoard target, SwitchableSquareSymmetry t, int size) {
+    return transformCells(boardData1, t, size) == target.boardData1
+        && transformCells(getColourPlane(t), t, size) == target.boardData2;
+  }
+
+  /**
+   * Finds the transformation producing the canonical form of a position with this board. The
+   * transformed positions are ordered by their occupied cells, then by the colours of the tokens,
+   * then by their status; the canonical form is the smallest one.
+   *
+   * @param status the status of the position
+   * @param size the size of the board
+   * @return the transformation producing the canonical form of the position
+   */
+  SwitchableSquareSymmetry getCanonicalTransformation(GameStatus status, int size) {
+    SwitchableSquareSymmetry canonical = null;
+    long canonicalData1 = 0;
+    long canonicalData2 = 0;
+    int canonicalStatus = 0;
+    for (SwitchableSquareSymmetry t : TRANSFORMATIONS) {
+      long data1 = transformCells(boardData1, t, size);
+      int c = canonical == null ? -1 : Long.compare(data1, canonicalData1);
+      if (c > 0) {
+        continue;
+      }
+      long data2 = transformCells(getColourPlane(t), t, size);
+      int transformedStatus = (t.isPlayerSwitching() ? status.getOther() : status).ordinal();
+      if (c == 0) {
+        c = Long.compare(data2, canonicalData2);
+      }
+      if (c == 0) {
+        c = Integer.compare(transformedStatus, canonicalStatus);
+      }
+      if (c < 0) {
+        canonical = t;
+        canonicalData1 = data1;
+        canonicalData2 = data2;
+        canonicalStatus = transformedStatus;
+      }
+    }
+    return canonical;
+  }
+
+  /**
+   * Returns the colour bits to transform. Switching the players turns the black tokens white and
+   * the white tokens black, so the colour bits are inverted on the occupied cells.
+   */
+  private long getColourPlane(SwitchableSquareSymmetry t) {
+    return t.isPlayerSwitching() ? boardData1 ^ boardData2 : boardData2;
+  }
+
+  /**
+   * Moves the cells of a mask as specified by a symmetry. The symmetries are composed of a
+   * transposition and reflections of the full 8x8 board; a reflection moves the cells of a smaller
+   * board to the far side of the 8x8 board, so they are shifted back afterwards.
+   *
+   * @param cells the mask of cells on a board of the specified size
+   * @param t the transformation
+   * @param size the size of the board
+   * @return the mask of the transformed cells
+   */
+  static long transformCells(long cells, SwitchableSquareSymmetry t, int size) {
+    switch (t) {
+      case IDENTITY:
+      case IDENTITY_SWITCH:
+        return cells;
+      case HORIZONTAL_REFLECTION:
+      case HORIZONTAL_REFLECTION_SWITCH:
+        return reflectColumns(cells, size);
+      case VERTICAL_REFLECTION:
+      case VERTICAL_REFLECTION_SWITCH:
+        return reflectRows(cells, size);
+      case ROTATION_90:
+      case ROTATION_90_SWITCH:
+        return reflectRows(transpose(cells), size);
+      case ROTATION_180:
+      case ROTATION_180_SWITCH:
+        return reflectRows(reflectColumns(cells, size), size);
+      case ROTATION_270:
+      case ROTATION_270_SWITCH:
+        return reflectColumns(transpose(cells), size);
+      case MAJOR_DIAGONAL_REFLECTION:
+      case MAJOR_DIAGONAL_REFLECTION_SWITCH:
+        return transpose(cells);
+      case MINOR_DIAGONAL_REFLECTION:
+      case MINOR_DIAGONAL_REFLECTION_SWITCH:
+        return reflectRows(reflectColumns(transpose(cells), size), size);
+      default:
+        throw new AssertionError(t);
+    }
+  }
+
+  /**
+   * Reflects the cells along the vertical axis: (x, y) -> (size-1-x, y).
+   */
+  private static long reflectColumns(long cells, int size) {
+    // reverse the bits of every byte by swapping bits, pairs and nibbles
+    cells = (cells >>> 1) & 0x5555555555555555L | (cells & 0x5555555555555555L) << 1;
+    cells = (cells >>> 2) & 0x3333333333333333L | (cells & 0x3333333333333333L) << 2;
+    cells = (cells >>> 4) & 0x0F0F0F0F0F0F0F0FL | (cells & 0x0F0F0F0F0F0F0F0FL) << 4;
+    return cells >>> (8 - size);
+  }
+
+  /**
+   * Reflects the cells along the horizontal axis: (x, y) -> (x, size-1-y).
+   */
+  private static long reflectRows(long cells, int size) {
+    return Long.reverseBytes(cells) >>> (8 * (8 - size));
+  }
+
+  /**
+   * Reflects the cells along the major diagonal: (x, y) -> (y, x). Blocks of 4x4, 2x2 and 1x1 cells
+   * on the two sides of the diagonal are swapped in turn.
+   */
+  static long transpose(long cells) {
+    long t = 0x0F0F0F0F00000000L & (cells ^ (cells << 28));
+    cells ^= t ^ (t >>> 28);
+    t = 0x3333000033330000L & (cells ^ (cells << 14));
+    cells ^= t ^ (t >>> 14);
+    t = 0x5500550055005500L & (cells ^ (cells << 7));
+    cells ^= t ^ (t >>> 7);
+    return cells;
+  }
+
+  /**
+   * Extends runs of cells in a direction by a Kogge-Stone fill: with shifts of 1, 2 and 4 steps,
+   * runs shorter than 8 cells are covered.
+   *
+   * @param generator the cells the runs start from
+   * @param propagator the cells the runs can extend to
+   * @param shift the change of the cell index in one step in the direction
+   * @return the cells of the generator, extended by the propagator cells they reach
+   */
+  private static long fill(long generator, long propagator, int shift) {
+    generator |= propagator & shift(generator, shift);
+    propagator &= shift(propagator, shift);
+    generator |= propagator & shift(generator, 2 * shift);
+    propagator &= shift(propagator, 2 * shift);
+    return generator | propagator & shift(generator, 4 * shift);
+  }
+
+  private static long shift(long cells, int shift) {
+    return shift > 0 ? cells << shift : cells >>> -shift;
+  }
+
 	// Package-private functions for serialization
   static int getMaxSerializedSize() {
     return 8 * 2;
@@ -232,19 +528,16 @@ class ReversiBoard {
     ReversiBoard board = new ReversiBoard();
     board.boardData1 = in.readLong();
     board.boardData2 = in.readLong();
-    long validMask;
+    long validMask = getValidMask(boardSize);
     long centerMask;
     switch (boardSize) {
       case 4:
-        validMask = 0b00001111_00001111_00001111_00001111L;
         centerMask = 0b00000000_00000110_00000110_00000000L;
         break;
       case 6:
-        validMask = 0b00111111_00111111_00111111_00111111_00111111_00111111L;
         centerMask = 0b00000000_00000000_00001100_00001100_00000000_00000000L;
         break;
       case 8:
-        validMask = 0b11111111_11111111_11111111_11111111_11111111_11111111_11111111_11111111L;
         centerMask = 0b00000000_00000000_00000000_00011000_00011000_00000000_00000000_00000000L;
         break;
       default:
@@ -0,0 +1,144 @@
+package hu.kazocsaba.gamecracker.game.reversi;
+
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SearchCursor;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+
+/**
+ * A search cursor for Reversi, playing the moves on a single board. Every move places a token on an
+ * empty cell, so the number of moves is bounded by the number of empty cells of the starting
+ * position, and the stacks are allocated in advance. A move is undone by playing it again, as
+ * {@link ReversiBoard#play} toggles the same cells.
+ *
+ * <p>The cursor keeps the Zobrist keys of all the transformed images of the positions along its
+ * path, so the positions it creates receive their invariant keys without computing them from the
+ * board; see {@link ZobristTable}. The keys are only brought up to date by {@link #toPosition()},
+ * so searches that never create positions do not pay for them.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @author Kazó Csaba
+ */
+final class ReversiCursor<P extends ReversiPosition<P, M>, M extends ReversiMove<M>>
+    implements SearchCursor<P, M, SwitchableSquareSymmetry> {
+
+  private final P start;
+  private final ReversiBoard board;
+  private int length;
+
+  /** The statuses of the positions along the path; the current one is at index {@code length}. */
+  private final GameStatus[] statuses;
+  /**
+   * The valid moves of the positions along the path, transposed to the order of the moves; see
+   * {@link ReversiPosition#getOrderedCell}.
+   */
+  private final long[] orderedMoveMasks;
+  /** The bit indices of the cells of the moves made. */
+  private final int[] cells;
+  /** The tokens flipped by the moves made. */
+  private final long[] flips;
+  /**
+   * The board keys of the positions along the path, in rows of {@link ZobristTable#ROW_LENGTH};
+   * the row of the position after {@code i} moves starts at {@code i * ZobristTable.ROW_LENGTH}.
+   */
+  private final long[] boardKeys;
+  /** The number of rows of {@link #boardKeys} that belong to the current path. */
+  private int keyRows;
+
+  ReversiCursor(P start) {
+    this.start = start;
+    board = new ReversiBoard(start.board);
+    int capacity = start.getSize() * start.getSize() - board.getTokenCount();
+    statuses = new GameStatus[capacity + 1];
+    orderedMoveMasks = new long[capacity + 1];
+    cells = new int[capacity];
+    flips = new long[capacity];
+    boardKeys = new long[(capacity + 1) * ZobristTable.ROW_LENGTH];
+    statuses[0] = start.getStatus();
+    orderedMoveMasks[0] = ReversiBoard.transpose(start.moveMask);
+    start.getZobristTable().getBoardKeys(board, boardKeys, 0);
+    keyRows = 1;
+  }
+
+  @Override
+  public GameStatus getStatus() {
+    return statuses[length];
+  }
+
+  @Override
+  public int getMoveCount() {
+    return Long.bitCount(orderedMoveMasks[length]);
+  }
+
+  @Override
+  public M getMove(int index) {
+    int cell = ReversiPosition.getOrderedCell(orderedMoveMasks[length], index);
+    return start.getMove(cell >>> 3, cell & 7);
+  }
+
+  @Override
+  public void move(int moveIndex) {
+    int orderedCell = ReversiPosition.getOrderedCell(orderedMoveMasks[length], moveIndex);
+    int x = orderedCell >>> 3;
+    int y = orderedCell & 7;
+    Player player = statuses[length].getCurrentPlayer();
+    long moveFlips = board.getFlips(player, x, y);
+    board.play(player, x, y, moveFlips);
+    cells[length] = x + 8 * y;
+    flips[length] = moveFlips;
+    length++;
+
+    // same as ReversiPosition.createAfterMove
+    Player nextPlayer = player.getOther();
+    long nextMoves = board.getMoveMask(nextPlayer, start.getSize());
+    if (nextMoves != 0) {
+      statuses[length] = nextPlayer.getMoveStatus();
+      orderedMoveMasks[length] = ReversiBoard.transpose(nextMoves);
+      return;
+    }
+    long currentMoves = board.getMoveMask(player, start.getSize());
+    if (currentMoves != 0) {
+      statuses[length] = player.getMoveStatus();
+      orderedMoveMasks[length] = ReversiBoard.transpose(currentMoves);
+      return;
+    }
+    statuses[length] = board.getFinalStatus();
+    orderedMoveMasks[length] = 0;
+  }
+
+  @Override
+  public void back() {
+    if (length == 0) {
+      throw new IllegalStateException("No move to undo");
+    }
+    length--;
+    keyRows = Math.min(keyRows, length + 1);
+    int cell = cells[length];
+    board.play(statuses[length].getCurrentPlayer(), cell & 7, cell >>> 3, flips[length]);
+  }
+
+  @Override
+  public int getLength() {
+    return length;
+  }
+
+  @Override
+  public P toPosition() {
+    if (length == 0) {
+      return start;
+    }
+    ZobristTable zobristTable = start.getZobristTable();
+    for (; keyRows <= length; keyRows++) {
+      int i = keyRows - 1;
+      zobristTable.move(boardKeys, i * ZobristTable.ROW_LENGTH, keyRows * ZobristTable.ROW_LENGTH,
+          statuses[i].getCurrentPlayer(), cells[i], flips[i]);
+    }
+    int row = length * ZobristTable.ROW_LENGTH;
+    // the transposition is its own inverse
+    return start.create(new ReversiBoard(board), statuses[length],
+        ReversiBoard.transpose(orderedMoveMasks[length]),
+        ZobristTable.getIdentityKey(boardKeys, row),
+        zobristTable.getInvariantKey(boardKeys, row, statuses[length]));
+  }
+}
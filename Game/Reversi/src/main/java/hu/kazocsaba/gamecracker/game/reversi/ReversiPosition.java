@@ -2,12 +2,11 @@ package hu.kazocsaba.gamecracker.game.reversi;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
 import hu.kazocsaba.gamecracker.game.GameStatus;
 import hu.kazocsaba.gamecracker.game.Player;
 import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SearchCursor;
 import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
 
 /**
@@ -18,14 +17,45 @@ import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
 public abstract class ReversiPosition<P extends ReversiPosition<P, M>, M extends ReversiMove<M>>
     extends Position<P, M, SwitchableSquareSymmetry> {
 
+  // Avoid copying the array in values() by using our own instance
+  private static final SwitchableSquareSymmetry[] TRANSFORMATIONS =
+      SwitchableSquareSymmetry.values();
+
   private final GameStatus status;
   // the board itself is technically not immutable, but once the position is constructed, it is not
   // altered any more
   final ReversiBoard board;
+  /** The valid moves of the current player, as returned by {@link ReversiBoard#getMoveMask}. */
+  final long moveMask;
+  /** The Zobrist key of the board; see {@link ZobristTable}. */
+  private final long boardKey;
+  /**
+   * The cached result of {@link #getInvariantKey()}, or 0 if it has not been computed yet. Threads
+   * racing to compute it store the same value, so no locking is needed. A key that is really 0 is
+   * recomputed on every call; as the random status key is mixed in, this has a chance of 2^-64,
+   * which does not justify a separate marker.
+   */
+  private volatile long invariantKey;
 
-  ReversiPosition(GameStatus status, ReversiBoard board) {
+  ReversiPosition(
+      GameStatus status, ReversiBoard board, long moveMask, long boardKey, long invariantKey) {
     this.status = status;
     this.board = board;
+    this.moveMask = moveMask;
+    this.boardKey = boardKey;
+    this.invariantKey = invariantKey;
+  }
+
+  /**
+   * Computes the valid moves in a position.
+   *
+   * @param board the board of the position
+   * @param status the status of the position
+   * @param size the size of the board
+   * @return the mask of the cells where the current player can move
+   */
+  static long getMoveMask(ReversiBoard board, GameStatus status, int size) {
+    return status.isFinal() ? 0 : board.getMoveMask(status.getCurrentPlayer(), size);
   }
 
   /**
@@ -49,7 +79,20 @@ public abstract class ReversiPosition<P extends ReversiPosition<P, M>, M extends
 
   abstract M getMove(int x, int y);
 
-  abstract P create(ReversiBoard board, GameStatus status);
+  abstract ZobristTable getZobristTable();
+
+  /**
+   * Creates a position of the same size.
+   *
+   * @param board the board of the position
+   * @param status the status of the position
+   * @param moveMask the valid moves of the position
+   * @param boardKey the Zobrist key of the board
+   * @param invariantKey the invariant key of the position, or 0 if it is not known
+   * @return the new position
+   */
+  abstract P create(
+      ReversiBoard board, GameStatus status, long moveMask, long boardKey, long invariantKey);
 
   @Override
   public GameStatus getStatus() {
@@ -61,217 +104,136 @@ public abstract class ReversiPosition<P extends ReversiPosition<P, M>, M extends
     if (status.isFinal()) {
       return Collections.emptyList();
     }
-    List<M> moves = new ArrayList<>();
-    Player currentPlayer = status.getCurrentPlayer();
-    for (int x = 0; x < getSize(); x++) {
-      for (int y = 0; y < getSize(); y++) {
-        if (board.isMoveValid(currentPlayer, x, y, getSize())) {
-          moves.add(getMove(x, y));
-        }
-      }
+    List<M> moves = new ArrayList<>(Long.bitCount(moveMask));
+    for (long cells = getOrderedMoveMask(); cells != 0; cells &= cells - 1) {
+      int cell = Long.numberOfTrailingZeros(cells);
+      moves.add(getMove(cell >>> 3, cell & 7));
     }
     return moves;
   }
 
+  /**
+   * Returns the valid moves with the cells transposed: the bit {@code y + 8 * x} is set if the cell
+   * (x, y) is a valid move. The moves are ordered by x, then by y, so the order of the bits is the
+   * order of the moves in {@link #getMoves()}.
+   */
+  private long getOrderedMoveMask() {
+    return ReversiBoard.transpose(moveMask);
+  }
+
+  private int getOrderedCell(int index) {
+    return getOrderedCell(getOrderedMoveMask(), index);
+  }
+
+  /**
+   * Finds the cell of a move by its index.
+   *
+   * @param orderedMoveMask the valid moves, as returned by {@link #getOrderedMoveMask()}
+   * @param index the index of the move
+   * @return the bit index of the cell in the ordered move mask: the cell (x, y) is returned as
+   *     {@code y + 8 * x}
+   * @throws IndexOutOfBoundsException if the index is not valid
+   */
+  static int getOrderedCell(long orderedMoveMask, int index) {
+    if (index < 0 || index >= Long.bitCount(orderedMoveMask)) {
+      throw new IndexOutOfBoundsException("Invalid move index: " + index);
+    }
+    long cells = orderedMoveMask;
+    for (int i = 0; i < index; i++) {
+      cells &= cells - 1;
+    }
+    return Long.numberOfTrailingZeros(cells);
+  }
+
+  @Override
+  public int getMoveCount() {
+    // the mask is empty in final positions
+    return Long.bitCount(moveMask);
+  }
+
+  @Override
+  public M getMove(int index) {
+    int cell = getOrderedCell(index);
+    return getMove(cell >>> 3, cell & 7);
+  }
+
+  @Override
+  public int getMoveIndex(M move) {
+    long cells = getOrderedMoveMask();
+    int cell = move.getY() + 8 * move.getX();
+    if ((cells & 1L << cell) == 0) {
+      return -1;
+    }
+    return Long.bitCount(cells & (1L << cell) - 1);
+  }
+
+  @Override
+  public P moveByIndex(int index) {
+    int cell = getOrderedCell(index);
+    int x = cell >>> 3;
+    int y = cell & 7;
+    return play(x, y, board.getFlips(status.getCurrentPlayer(), x, y));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public SearchCursor<P, M, SwitchableSquareSymmetry> createCursor() {
+    return new ReversiCursor<>((P) this);
+  }
+
   @Override
   public P move(M move) {
     final int x = move.getX();
     final int y = move.getY();
-    final Player player = status.getCurrentPlayer();
 
     if (board.getCell(x, y) != null) {
       throw new IllegalArgumentException("Invalid move: " + move + " (cell not empty)");
     }
 
-    boolean moveValid = false;
-
-    ReversiBoard newBoard = new ReversiBoard(board);
-    newBoard.setCell(x, y, player);
-
-    // check towards +x
-    if (x < getSize() - 2 && board.getCell(x + 1, y) == player.getOther()) {
-      for (int ix = x + 2; ix < getSize(); ix++) {
-        Player cellContents = board.getCell(ix, y);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = x + 1; j < ix; j++) {
-            newBoard.setCell(j, y, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards +y
-    if (y < getSize() - 2 && board.getCell(x, y + 1) == player.getOther()) {
-      for (int iy = y + 2; iy < getSize(); iy++) {
-        Player cellContents = board.getCell(x, iy);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = y + 1; j < iy; j++) {
-            newBoard.setCell(x, j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards -x
-    if (x > 1 && board.getCell(x - 1, y) == player.getOther()) {
-      for (int ix = x - 2; ix >= 0; ix--) {
-        Player cellContents = board.getCell(ix, y);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = x - 1; j > ix; j--) {
-            newBoard.setCell(j, y, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards -y
-    if (y > 1 && board.getCell(x, y - 1) == player.getOther()) {
-      for (int iy = y - 2; iy >= 0; iy--) {
-        Player cellContents = board.getCell(x, iy);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = y - 1; j > iy; j--) {
-            newBoard.setCell(x, j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards +x+y
-    if (x < getSize() - 2 && y < getSize() - 2
-        && board.getCell(x + 1, y + 1) == player.getOther()) {
-      for (int d = 2; x + d < getSize() && y + d < getSize(); d++) {
-        Player cellContents = board.getCell(x + d, y + d);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = 1; j < d; j++) {
-            newBoard.setCell(x + j, y + j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards +x-y
-    if (x < getSize() - 2 && y > 1 && board.getCell(x + 1, y - 1) == player.getOther()) {
-      for (int d = 2; x + d < getSize() && y - d >= 0; d++) {
-        Player cellContents = board.getCell(x + d, y - d);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = 1; j < d; j++) {
-            newBoard.setCell(x + j, y - j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards -x+y
-    if (x > 1 && y < getSize() - 2 && board.getCell(x - 1, y + 1) == player.getOther()) {
-      for (int d = 2; x - d >= 0 && y + d < getSize(); d++) {
-        Player cellContents = board.getCell(x - d, y + d);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = 1; j < d; j++) {
-            newBoard.setCell(x - j, y + j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    // check towards -x-y
-    if (x > 1 && y > 1 && board.getCell(x - 1, y - 1) == player.getOther()) {
-      for (int d = 2; x - d >= 0 && y - d >= 0; d++) {
-        Player cellContents = board.getCell(x - d, y - d);
-        if (cellContents == player) {
-          moveValid = true;
-          for (int j = 1; j < d; j++) {
-            newBoard.setCell(x - j, y - j, player);
-          }
-          break;
-        }
-        if (cellContents == null) {
-          break;
-        }
-      }
-    }
-    if (!moveValid) {
+    long flips = board.getFlips(status.getCurrentPlayer(), x, y);
+    if (flips == 0) {
       throw new IllegalArgumentException("Invalid move: " + move);
     }
-
-    return create(newBoard, computeStatus(newBoard, player.getOther()));
+    return play(x, y, flips);
   }
 
-  private GameStatus computeStatus(ReversiBoard board, Player nextPlayer) {
-    boolean currentPlayerCanMove = false;
-    int whiteCount = 0;
-    int blackCount = 0;
-    Player currentPlayer = nextPlayer.getOther();
+  /**
+   * Plays a valid move of the current player.
+   */
+  private P play(int x, int y, long flips) {
+    Player player = status.getCurrentPlayer();
+    ReversiBoard newBoard = new ReversiBoard(board);
+    newBoard.play(player, x, y, flips);
+    long newBoardKey = getZobristTable().move(boardKey, player, x + 8 * y, flips);
 
-    for (int x = 0; x < getSize(); x++) {
-      for (int y = 0; y < getSize(); y++) {
-        if (board.isMoveValid(nextPlayer, x, y, getSize())) {
-          return nextPlayer.getMoveStatus();
-        }
-        if (!currentPlayerCanMove && board.isMoveValid(currentPlayer, x, y, getSize())) {
-          currentPlayerCanMove = true;
-        }
-        Player cellContents = board.getCell(x, y);
-        if (cellContents == Player.WHITE) {
-          whiteCount++;
-        } else if (cellContents == Player.BLACK) {
-          blackCount++;
-        }
-      }
-    }
-    if (currentPlayerCanMove) {
-      return currentPlayer.getMoveStatus();
+    return createAfterMove(newBoard, newBoardKey, player.getOther());
+  }
+
+  /**
+   * Creates the position following a move. The next player is the opponent of the one who moved,
+   * unless the opponent has no valid moves; the game ends when neither player can move.
+   */
+  private P createAfterMove(ReversiBoard board, long boardKey, Player nextPlayer) {
+    long nextMoves = board.getMoveMask(nextPlayer, getSize());
+    if (nextMoves != 0) {
+      return create(board, nextPlayer.getMoveStatus(), nextMoves, boardKey, 0);
     }
-    if (whiteCount > blackCount) {
-      return GameStatus.WHITE_WINS;
-    } else if (whiteCount < blackCount) {
-      return GameStatus.BLACK_WINS;
-    } else {
-      return GameStatus.DRAW;
+    Player currentPlayer = nextPlayer.getOther();
+    long currentMoves = board.getMoveMask(currentPlayer, getSize());
+    if (currentMoves != 0) {
+      return create(board, currentPlayer.getMoveStatus(), currentMoves, boardKey, 0);
     }
+    return create(board, board.getFinalStatus(), 0, boardKey, 0);
   }
 
   @Override
   public P transform(SwitchableSquareSymmetry t) {
-    ReversiBoard newBoard = new ReversiBoard();
-
-    for (int x = 0; x < getSize(); x++) {
-      for (int y = 0; y < getSize(); y++) {
-        Player cellContents = board.getCell(x, y);
-        if (cellContents != null) {
-          newBoard.setCell(t.transformX(x, y, getSize()), t.transformY(x, y, getSize()), t.isPlayerSwitching() ? cellContents.getOther() : cellContents);
-        }
-      }
-    }
-
-    return create(newBoard, t.isPlayerSwitching() ? status.getOther() : status);
+    ReversiBoard newBoard = board.transform(t, getSize());
+    GameStatus newStatus = t.isPlayerSwitching() ? status.getOther() : status;
+    // the moves of the transformed position are the transformed moves, and the invariant key is
+    // the same
+    return create(newBoard, newStatus, ReversiBoard.transformCells(moveMask, t, getSize()),
+        getZobristTable().getBoardKey(newBoard), invariantKey);
   }
 
   @Override
@@ -287,63 +249,44 @@ public abstract class ReversiPosition<P extends ReversiPosition<P, M>, M extends
       return SwitchableSquareSymmetry.IDENTITY;
     }
 
-    EnumSet<SwitchableSquareSymmetry> possibilities = EnumSet.allOf(SwitchableSquareSymmetry.class);
-    possibilities.remove(SwitchableSquareSymmetry.IDENTITY);
-
-    for (Iterator<SwitchableSquareSymmetry> it = possibilities.iterator(); it.hasNext();) {
-      if (!checkTransformation(target, it.next())) {
-        it.remove();
+    for (SwitchableSquareSymmetry t : TRANSFORMATIONS) {
+      GameStatus transformedStatus = t.isPlayerSwitching() ? status.getOther() : status;
+      if (!t.isIdentity() && transformedStatus == target.getStatus()
+          && board.isTransformedTo(target.board, t, getSize())) {
+        return t;
       }
     }
-    if (possibilities.isEmpty()) {
-      return null;
-    }
-    return possibilities.iterator().next();
+    return null;
   }
 
-  private boolean checkTransformation(P target, SwitchableSquareSymmetry trans) {
-    if (trans.isPlayerSwitching()) {
-      if (status.getOther() != target.getStatus()) {
-        return false;
-      }
-      for (int x = 0; x < getSize(); x++) {
-        for (int y = 0; y < getSize(); y++) {
-          Player myCell = board.getCell(x, y);
-          Player herCell = target.board.getCell(trans.transformX(x, y, getSize()), trans.transformY(x, y, getSize()));
-          if (myCell == null) {
-            if (herCell != null) {
-              return false;
-            }
-          } else {
-            if (herCell != myCell.getOther()) {
-              return false;
-            }
-          }
-        }
-      }
-    } else {
-      if (status != target.getStatus()) {
-        return false;
-      }
-      for (int x = 0; x < getSize(); x++) {
-        for (int y = 0; y < getSize(); y++) {
-          Player myCell = board.getCell(x, y);
-          Player herCell = target.board.getCell(trans.transformX(x, y, getSize()), trans.transformY(x, y, getSize()));
-          if (herCell != myCell) {
-            return false;
-          }
-        }
-      }
+  @Override
+  public SwitchableSquareSymmetry getCanonicalTransformation() {
+    return board.getCanonicalTransformation(status, getSize());
+  }
+
+  /**
+   * Returns the smallest Zobrist key among the transformed images of this position. The keys of the
+   * images are computed from the cells of the board, so no transformation is computed, but the
+   * first call takes time proportional to the number of tokens: positions do not store the keys of
+   * the images, so {@link #move} cannot update them. The result is cached, as the graphs query it
+   * repeatedly through the key and category functions; it is passed on by
+   * {@link #transform(SwitchableSquareSymmetry)}. Positions created by a {@link SearchCursor}
+   * receive it from the keys maintained by the cursor, which cost time proportional to the number
+   * of flipped tokens per move.
+   */
+  @Override
+  public long getInvariantKey() {
+    long key = invariantKey;
+    if (key == 0) {
+      key = getZobristTable().getInvariantKey(board, status);
+      invariantKey = key;
     }
-    return true;
+    return key;
   }
 
   @Override
   public int hashCode() {
-    int hash = 7;
-    hash = 89 * hash + status.hashCode();
-    hash = 89 * hash + board.hashCode();
-    return hash;
+    return Long.hashCode(getZobristTable().getKey(boardKey, status));
   }
 
   @Override
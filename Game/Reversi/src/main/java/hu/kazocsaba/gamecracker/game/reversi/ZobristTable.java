@@ -0,0 +1,231 @@
+package hu.kazocsaba.gamecracker.game.reversi;
+
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+
+import java.util.Random;
+
+/**
+ * Zobrist keys for the positions of a Reversi board of a given size. The key of a position is the
+ * xor of a random value for every token, determined by the cell and the colour of the token, and a
+ * random value for the status of the position.
+ *
+ * <p>A position only stores the board key of its identity image, which {@link #move} updates
+ * incrementally; the status is not included in the board keys, it is added when a key is queried.
+ * The invariant key, the smallest key among all the transformed images, is computed from the board
+ * by {@link #getInvariantKey(ReversiBoard, GameStatus)}. A {@link ReversiCursor} maintains the
+ * board keys of all the images instead, in rows indexed by the ordinal of the transformation, so
+ * that it can produce the invariant key of any position along its path without going through the
+ * board: placing a token updates each board key of a row with the value of the transformed cell;
+ * flipping a token updates them with the xor of the values of the two colours, which is the same
+ * for a transformation and its player-switching counterpart.
+ *
+ * @author Kazó Csaba
+ */
+final class ZobristTable {
+
+  // Avoid copying the array in values() by using our own instance
+  private static final SwitchableSquareSymmetry[] TRANSFORMATIONS =
+      SwitchableSquareSymmetry.values();
+  /** The number of board keys in a row, one for each transformation. */
+  static final int ROW_LENGTH = TRANSFORMATIONS.length;
+  private static final int IDENTITY = SwitchableSquareSymmetry.IDENTITY.ordinal();
+
+  /**
+   * The values of the tokens in the board keys: {@code whiteKeys[16 * cell + t]} is the value of a
+   * white token on a cell in the key of the image transformed by the transformation with ordinal
+   * {@code t}. The values of a cell are stored together, as a move updates all the keys at once.
+   */
+  private final long[] whiteKeys;
+  private final long[] blackKeys;
+  /**
+   * The changes caused by flipping a token: the xor of the white and black values. A transformation
+   * and its player-switching counterpart, having consecutive ordinals, share the same value, so
+   * {@code flipKeys[8 * cell + t / 2]} is the value for the transformation with ordinal {@code t}.
+   */
+  private final long[] flipKeys;
+  private final long[] statusKeys;
+  /**
+   * Creates the Zobrist keys for a board size. The keys are generated by a fixed seed, so they are
+   * the same in every run.
+   *
+   * @param size the size of the board
+   */
+  ZobristTable(int size) {
+    Random random = new Random(0x5EED0000L + size);
+    long[] white = new long[64];
+    long[] black = new long[64];
+    for (int cell = 0; cell < 64; cell++) {
+      white[cell] = random.nextLong();
+      black[cell] = random.nextLong();
+    }
+    statusKeys = new long[GameStatus.getCount()];
+    for (int i = 0; i < statusKeys.length; i++) {
+      statusKeys[i] = random.nextLong();
+    }
+
+    whiteKeys = new long[64 * ROW_LENGTH];
+    blackKeys = new long[64 * ROW_LENGTH];
+    flipKeys = new long[64 * ROW_LENGTH / 2];
+    long validMask = ReversiBoard.getValidMask(size);
+    for (SwitchableSquareSymmetry t : TRANSFORMATIONS) {
+      int i = t.ordinal();
+      for (int cell = 0; cell < 64; cell++) {
+        if ((validMask & 1L << cell) == 0) {
+          continue;
+        }
+        int target = Long.numberOfTrailingZeros(ReversiBoard.transformCells(1L << cell, t, size));
+        whiteKeys[ROW_LENGTH * cell + i] = t.isPlayerSwitching() ? black[target] : white[target];
+        blackKeys[ROW_LENGTH * cell + i] = t.isPlayerSwitching() ? white[target] : black[target];
+        flipKeys[ROW_LENGTH / 2 * cell + i / 2] = white[target] ^ black[target];
+      }
+    }
+  }
+
+  /**
+   * Computes the board key of the identity image of a board.
+   *
+   * @param board the board
+   * @return the board key
+   */
+  long getBoardKey(ReversiBoard board) {
+    return getBoardKey(whiteKeys, board.getTokens(Player.WHITE))
+        ^ getBoardKey(blackKeys, board.getTokens(Player.BLACK));
+  }
+
+  private static long getBoardKey(long[] values, long cells) {
+    long key = 0;
+    for (; cells != 0; cells &= cells - 1) {
+      key ^= values[ROW_LENGTH * Long.numberOfTrailingZeros(cells) + IDENTITY];
+    }
+    return key;
+  }
+
+  /**
+   * Computes the board keys of all the transformed images of a board.
+   *
+   * @param board the board
+   * @param keys the array to receive the row of the board keys
+   * @param offset the start of the row in the array
+   */
+  void getBoardKeys(ReversiBoard board, long[] keys, int offset) {
+    for (int t = 0; t < ROW_LENGTH; t++) {
+      keys[offset + t] = 0;
+    }
+    xor(keys, offset, whiteKeys, board.getTokens(Player.WHITE));
+    xor(keys, offset, blackKeys, board.getTokens(Player.BLACK));
+  }
+
+  private static void xor(long[] keys, int offset, long[] values, long cells) {
+    for (; cells != 0; cells &= cells - 1) {
+      int valueOffset = ROW_LENGTH * Long.numberOfTrailingZeros(cells);
+      for (int t = 0; t < ROW_LENGTH; t++) {
+        keys[offset + t] ^= values[valueOffset + t];
+      }
+    }
+  }
+
+  /**
+   * Updates the board key of the identity image after a move, in time proportional to the number
+   * of flipped tokens.
+   *
+   * @param key the board key before the move
+   * @param player the player who moved
+   * @param cell the index of the cell of the move
+   * @param flips the tokens flipped by the move
+   * @return the board key after the move
+   */
+  long move(long key, Player player, int cell, long flips) {
+    long[] placeKeys = player == Player.WHITE ? whiteKeys : blackKeys;
+    key ^= placeKeys[ROW_LENGTH * cell + IDENTITY];
+    for (; flips != 0; flips &= flips - 1) {
+      key ^= flipKeys[ROW_LENGTH / 2 * Long.numberOfTrailingZeros(flips) + IDENTITY / 2];
+    }
+    return key;
+  }
+
+  /**
+   * Computes the row of the board keys after a move from the row before the move, in time
+   * proportional to the number of flipped tokens.
+   *
+   * @param keys the array of the rows
+   * @param from the start of the row before the move
+   * @param to the start of the row to receive the board keys after the move
+   * @param player the player who moved
+   * @param cell the index of the cell of the move
+   * @param flips the tokens flipped by the move
+   */
+  void move(long[] keys, int from, int to, Player player, int cell, long flips) {
+    long[] placeKeys = player == Player.WHITE ? whiteKeys : blackKeys;
+    int offset = ROW_LENGTH * cell;
+    for (int t = 0; t < ROW_LENGTH; t++) {
+      keys[to + t] = keys[from + t] ^ placeKeys[offset + t];
+    }
+    for (; flips != 0; flips &= flips - 1) {
+      offset = ROW_LENGTH / 2 * Long.numberOfTrailingZeros(flips);
+      for (int t = 0; t < ROW_LENGTH; t += 2) {
+        long flipKey = flipKeys[offset + t / 2];
+        keys[to + t] ^= flipKey;
+        keys[to + t + 1] ^= flipKey;
+      }
+    }
+  }
+
+  /**
+   * Returns the key of a position.
+   *
+   * @param boardKey the board key of the identity image of the position
+   * @param status the status of the position
+   * @return the Zobrist key of the position
+   */
+  long getKey(long boardKey, GameStatus status) {
+    return boardKey ^ statusKeys[status.ordinal()];
+  }
+
+  /**
+   * Returns the board key of the identity image from a row of board keys.
+   *
+   * @param keys the array of the rows
+   * @param offset the start of the row
+   * @return the board key of the identity image
+   */
+  static long getIdentityKey(long[] keys, int offset) {
+    return keys[offset + IDENTITY];
+  }
+
+  /**
+   * Computes the smallest key among the transformed images of a position. Since the transformations
+   * only permute the images, it is the same for all positions related by a transformation.
+   *
+   * @param board the board of the position
+   * @param status the status of the position
+   * @return the invariant key of the position
+   */
+  long getInvariantKey(ReversiBoard board, GameStatus status) {
+    long[] keys = new long[ROW_LENGTH];
+    getBoardKeys(board, keys, 0);
+    return getInvariantKey(keys, 0, status);
+  }
+
+  /**
+   * Returns the smallest key among the transformed images of a position, from the row of its board
+   * keys.
+   *
+   * @param keys the array of the rows
+   * @param offset the start of the row of the position
+   * @param status the status of the position
+   * @return the invariant key of the position
+   */
+  long getInvariantKey(long[] keys, int offset, GameStatus status) {
+    long statusKey = statusKeys[status.ordinal()];
+    long switchedStatusKey = statusKeys[status.getOther().ordinal()];
+    long key = Long.MAX_VALUE;
+    // the player-switching transformations are the ones with odd ordinals
+    for (int t = 0; t < ROW_LENGTH; t += 2) {
+      key = Math.min(key,
+          Math.min(keys[offset + t] ^ statusKey, keys[offset + t + 1] ^ switchedStatusKey));
+    }
+    return key;
+  }
+}
@@ -0,0 +1,214 @@
+package hu.kazocsaba.gamecracker.game.reversi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class ReversiBoardTest {
+
+  /**
+   * Compares the move masks of random boards to the cells accepted by {@code isMoveValid}, and the
+   * flips of the moves to a cell by cell computation.
+   */
+  @Test
+  public void testMoveMask() {
+    Random random = new Random(3);
+    for (int size = 4; size <= 8; size += 2) {
+      for (int i = 0; i < 2000; i++) {
+        ReversiBoard board = createRandomBoard(random, size);
+        for (Player player : Player.values()) {
+          assertEquals(getMoveMaskByCells(board, player, size), board.getMoveMask(player, size));
+          checkFlips(board, player, size);
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares the move masks to {@code isMoveValid} along random games.
+   */
+  @Test
+  public void testMoveMaskInGames() {
+    Random random = new Random(4);
+    checkGames(new Reversi4(), random);
+    checkGames(new Reversi6(), random);
+  }
+
+  /**
+   * Checks the Zobrist keys maintained along random games and through the transformations against
+   * the keys computed from scratch for the deserialized positions.
+   */
+  @Test
+  public void testZobristKeys() throws IOException {
+    Random random = new Random(6);
+    checkZobristKeys(new Reversi4(), random);
+    checkZobristKeys(new Reversi6(), random);
+  }
+
+  /**
+   * Compares the bitwise transformations of random boards to transforming them cell by cell.
+   */
+  @Test
+  public void testTransform() {
+    Random random = new Random(5);
+    for (int size = 4; size <= 8; size += 2) {
+      for (int i = 0; i < 500; i++) {
+        ReversiBoard board = createRandomBoard(random, size);
+        for (SwitchableSquareSymmetry t : SwitchableSquareSymmetry.values()) {
+          ReversiBoard expected = new ReversiBoard();
+          for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+              Player cell = board.getCell(x, y);
+              if (cell != null) {
+                expected.setCell(t.transformX(x, y, size), t.transformY(x, y, size),
+                    t.isPlayerSwitching() ? cell.getOther() : cell);
+              }
+            }
+          }
+          assertEquals(expected, board.transform(t, size));
+          assertTrue(board.isTransformedTo(expected, t, size));
+          for (Player player : Player.values()) {
+            assertEquals(
+                expected.getMoveMask(t.isPlayerSwitching() ? player.getOther() : player, size),
+                ReversiBoard.transformCells(board.getMoveMask(player, size), t, size));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares the flips of every move on a board to the tokens found by walking the directions cell
+   * by cell, and checks the board after playing the move.
+   */
+  private static void checkFlips(ReversiBoard board, Player player, int size) {
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        if (board.getCell(x, y) != null) {
+          continue;
+        }
+        long flips = board.getFlips(player, x, y);
+        assertEquals(getFlipsByCells(board, player, x, y, size), flips);
+        assertEquals(board.isMoveValid(player, x, y, size), flips != 0);
+
+        ReversiBoard next = new ReversiBoard(board);
+        next.play(player, x, y, flips);
+        for (int cx = 0; cx < size; cx++) {
+          for (int cy = 0; cy < size; cy++) {
+            Player expected = (cx == x && cy == y) || (flips & 1L << (cx + 8 * cy)) != 0
+                ? player
+                : board.getCell(cx, cy);
+            assertEquals(expected, next.getCell(cx, cy));
+          }
+        }
+      }
+    }
+  }
+
+  private static long getFlipsByCells(ReversiBoard board, Player player, int x, int y, int size) {
+    long flips = 0;
+    for (int dx = -1; dx <= 1; dx++) {
+      for (int dy = -1; dy <= 1; dy++) {
+        long run = 0;
+        int cx = x + dx;
+        int cy = y + dy;
+        while ((dx != 0 || dy != 0) && cx >= 0 && cx < size && cy >= 0 && cy < size
+            && board.getCell(cx, cy) == player.getOther()) {
+          run |= 1L << (cx + 8 * cy);
+          cx += dx;
+          cy += dy;
+        }
+        if (run != 0 && cx >= 0 && cx < size && cy >= 0 && cy < size
+            && board.getCell(cx, cy) == player) {
+          flips |= run;
+        }
+      }
+    }
+    return flips;
+  }
+
+  private static <P extends ReversiPosition<P, M>, M extends ReversiMove<M>> void checkGames(
+      Reversi<P, M> game, Random random) {
+    for (int i = 0; i < 200; i++) {
+      P position = game.getInitialPosition();
+      while (!position.getStatus().isFinal()) {
+        for (Player player : Player.values()) {
+          assertEquals(getMoveMaskByCells(position.board, player, position.getSize()),
+              position.board.getMoveMask(player, position.getSize()));
+        }
+        position = position.move(position.getMoves().get(random.nextInt(
+            position.getMoves().size())));
+      }
+    }
+  }
+
+  private static <P extends ReversiPosition<P, M>, M extends ReversiMove<M>> void checkZobristKeys(
+      Reversi<P, M> game, Random random) throws IOException {
+    for (int i = 0; i < 100; i++) {
+      P position = game.getInitialPosition();
+      while (true) {
+        for (SwitchableSquareSymmetry t : SwitchableSquareSymmetry.values()) {
+          P transformed = position.transform(t);
+          P read = writeAndRead(game, transformed);
+          assertEquals(read.hashCode(), transformed.hashCode());
+          assertEquals(read.getInvariantKey(), transformed.getInvariantKey());
+          assertEquals(position.getInvariantKey(), transformed.getInvariantKey());
+        }
+        if (position.getStatus().isFinal()) {
+          break;
+        }
+        position = position.move(position.getMoves().get(random.nextInt(
+            position.getMoves().size())));
+      }
+    }
+  }
+
+  private static <P extends ReversiPosition<P, M>, M extends ReversiMove<M>> P writeAndRead(
+      Reversi<P, M> game, P position) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    game.getPositionSerializer().writePosition(position, new DataOutputStream(bytes));
+    return game.getPositionSerializer().readPosition(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  private static ReversiBoard createRandomBoard(Random random, int size) {
+    // vary the density, so that both sparse boards and long runs of tokens are covered
+    double emptyRatio = random.nextDouble();
+    ReversiBoard board = new ReversiBoard();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        if (random.nextDouble() >= emptyRatio) {
+          board.setCell(x, y, random.nextBoolean() ? Player.WHITE : Player.BLACK);
+        }
+      }
+    }
+    return board;
+  }
+
+  private static long getMoveMaskByCells(ReversiBoard board, Player player, int size) {
+    long mask = 0;
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        if (board.isMoveValid(player, x, y, size)) {
+          mask |= 1L << (x + 8 * y);
+        }
+      }
+    }
+    return mask;
+  }
+}
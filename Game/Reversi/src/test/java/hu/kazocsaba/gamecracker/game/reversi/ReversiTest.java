@@ -12,6 +12,8 @@ import org.junit.experimental.theories.Theories;
 import org.junit.experimental.theories.Theory;
 import org.junit.runner.RunWith;
 
+import java.util.Random;
+
 /**
  *
  * @author Kazó Csaba
@@ -69,7 +71,7 @@ public abstract class ReversiTest<
    * the initial positions, it checks that the transformations of the moves can be applied, the
    * intermediate positions are not final, the final position's result is a transformation of 'White
    * wins'. For the intermediate positions, it also verifies that the corresponding transformations
-   * still apply.
+   * still apply, and the invariant keys are the same.
    */
   @Theory
   public void testSymmetries(TestGame<M> testGame) {
@@ -85,9 +87,10 @@ public abstract class ReversiTest<
         assertTrue(pos[symm.ordinal()].getMoves().contains(transformedMove));
         pos[symm.ordinal()] = pos[symm.ordinal()].move(transformedMove);
       }
+      P original = pos[SwitchableSquareSymmetry.IDENTITY.ordinal()];
       for (SwitchableSquareSymmetry symm : SwitchableSquareSymmetry.values()) {
-        assertPositionsTransformed(
-            pos[SwitchableSquareSymmetry.IDENTITY.ordinal()], symm, pos[symm.ordinal()]);
+        assertPositionsTransformed(original, symm, pos[symm.ordinal()]);
+        assertEquals(original.getInvariantKey(), pos[symm.ordinal()].getInvariantKey());
       }
     }
     for (SwitchableSquareSymmetry symm : SwitchableSquareSymmetry.values()) {
@@ -96,6 +99,37 @@ public abstract class ReversiTest<
     }
   }
 
+  /**
+   * Plays out the games along with all their transformations, checking the index-based move
+   * functions in each encountered position.
+   */
+  @Theory
+  public void testMoveIndices(TestGame<M> testGame) {
+    for (SwitchableSquareSymmetry symm : SwitchableSquareSymmetry.values()) {
+      P position = game.getInitialPosition().transform(symm);
+      for (M move : testGame.moves) {
+        assertMovesIndexed(position);
+        position = position.move(move.transform(symm));
+      }
+      assertMovesIndexed(position);
+    }
+  }
+
+  /**
+   * Walks the game tree with search cursors, starting from the positions of the games, and checks
+   * them against the immutable positions.
+   */
+  @Theory
+  public void testCursor(TestGame<M> testGame) {
+    Random random = new Random(testGame.moves.length);
+    P position = game.getInitialPosition();
+    for (M move : testGame.moves) {
+      assertCursorConsistent(position, random, 50);
+      position = position.move(move);
+    }
+    assertCursorConsistent(position, random, 50);
+  }
+
   /**
    * Plays out the games along with all their transformations, verifying that the transformed move
    * is valid, and testing the serialization of each encountered position.
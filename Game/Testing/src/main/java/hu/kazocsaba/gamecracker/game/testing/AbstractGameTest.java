@@ -3,10 +3,12 @@ package hu.kazocsaba.gamecracker.game.testing;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import hu.kazocsaba.gamecracker.game.Game;
 import hu.kazocsaba.gamecracker.game.Move;
 import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SearchCursor;
 import hu.kazocsaba.gamecracker.game.Transformation;
 
 import org.junit.Test;
@@ -16,7 +18,10 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 import java.util.ServiceLoader;
 
 /**
@@ -62,6 +67,7 @@ public abstract class AbstractGameTest<
    * <ul>
    * <li>equality of the positions themselves</li>
    * <li>their hash codes</li>
+   * <li>their invariant keys</li>
    * <li>their categories</li>
    * <li>each report an identity transformation to the other</li>
    * </ul>
@@ -76,6 +82,7 @@ public abstract class AbstractGameTest<
     assertNotNull(transformation);
     assertTrue(transformation.isIdentity());
     assertEquals(p1.hashCode(), p2.hashCode());
+    assertEquals(p1.getInvariantKey(), p2.getInvariantKey());
     assertEquals(game.getCategoryFunction().category(p1), game.getCategoryFunction().category(p2));
   }
 
@@ -83,17 +90,94 @@ public abstract class AbstractGameTest<
    * Asserts that two positions are equal through a transformation. This function performs the
    * following checks:
    * <ul>
-   * <li>the categories of the positions are the same</li>
+   * <li>the categories and the invariant keys of the positions are the same</li>
    * <li>applying the transformation to the first results in a position equal to the second (using
    * {@link #assertPositionsEqual(Position, Position)})</li>
    * <li>applying the inverse of the transformation to the second results in a position equal to the
    * first (using {@link #assertPositionsEqual(Position, Position)})</li>
+   * <li>if the game supports canonical forms, the positions have the same canonical form</li>
    * </ul>
    */
   protected void assertPositionsTransformed(P p1, T t, P p2) {
     assertEquals(game.getCategoryFunction().category(p1), game.getCategoryFunction().category(p2));
+    assertEquals(p1.getInvariantKey(), p2.getInvariantKey());
     assertPositionsEqual(p1.transform(t), p2);
     assertPositionsEqual(p2.transform(t.inverse()), p1);
+    T canonical1 = p1.getCanonicalTransformation();
+    T canonical2 = p2.getCanonicalTransformation();
+    assertEquals(canonical1 == null, canonical2 == null);
+    if (canonical1 != null) {
+      assertPositionsEqual(p1.transform(canonical1), p1.getCanonicalForm());
+      assertPositionsEqual(p1.getCanonicalForm(), p2.getCanonicalForm());
+    }
+  }
+
+  /**
+   * Asserts that the index-based move functions of a position agree with its list of moves:
+   * {@link Position#getMoveCount()}, {@link Position#getMove(int)},
+   * {@link Position#getMoveIndex(Move)}, and {@link Position#moveByIndex(int)}.
+   */
+  protected void assertMovesIndexed(P position) {
+    List<M> moves = position.getMoves();
+    assertEquals(moves.size(), position.getMoveCount());
+    for (int i = 0; i < moves.size(); i++) {
+      assertEquals(moves.get(i), position.getMove(i));
+      assertEquals(i, position.getMoveIndex(moves.get(i)));
+      assertPositionsEqual(position.move(moves.get(i)), position.moveByIndex(i));
+    }
+    for (int index : new int[] {-1, moves.size()}) {
+      try {
+        position.getMove(index);
+        fail("Move index " + index + " accepted");
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Walks the game tree randomly with a search cursor, checking that it agrees with the positions
+   * along the same path. Each step makes a random move, or undoes the last one; in every position
+   * the status, the moves, and the result of {@link SearchCursor#toPosition()} are compared (the
+   * latter using {@link #assertPositionsEqual(Position, Position)}).
+   *
+   * @param start the position to create the cursor for
+   * @param random the source of the moves
+   * @param steps the number of moves and undos to make
+   */
+  protected void assertCursorConsistent(P start, Random random, int steps) {
+    SearchCursor<P, M, T> cursor = start.createCursor();
+    List<P> path = new ArrayList<>();
+    path.add(start);
+    for (int step = 0; step <= steps; step++) {
+      P position = path.get(path.size() - 1);
+      assertEquals(path.size() - 1, cursor.getLength());
+      assertEquals(position.getStatus(), cursor.getStatus());
+      assertEquals(position.getMoveCount(), cursor.getMoveCount());
+      for (int i = 0; i < position.getMoveCount(); i++) {
+        assertEquals(position.getMove(i), cursor.getMove(i));
+      }
+      assertPositionsEqual(position, cursor.toPosition());
+
+      if (cursor.getMoveCount() > 0 && (cursor.getLength() == 0 || random.nextInt(4) != 0)) {
+        int index = random.nextInt(cursor.getMoveCount());
+        cursor.move(index);
+        path.add(position.moveByIndex(index));
+      } else if (cursor.getLength() > 0) {
+        cursor.back();
+        path.remove(path.size() - 1);
+      }
+    }
+    while (cursor.getLength() > 0) {
+      cursor.back();
+    }
+    assertPositionsEqual(start, cursor.toPosition());
+    try {
+      cursor.back();
+      fail("Undo accepted at the starting position");
+    } catch (IllegalStateException e) {
+      // expected
+    }
   }
 
   private static class ByteArrayOutput extends OutputStream {
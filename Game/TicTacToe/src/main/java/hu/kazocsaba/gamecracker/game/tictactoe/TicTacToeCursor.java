@@ -0,0 +1,105 @@
+package hu.kazocsaba.gamecracker.game.tictactoe;
+
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SearchCursor;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+
+/**
+ * A search cursor for Tic Tac Toe, placing the marks on a single board. A move is undone by
+ * clearing its cell. The cursor keeps the Zobrist keys of all the transformed images of the
+ * positions along its path, so the positions it creates receive their invariant keys; the keys are
+ * only brought up to date by {@link #toPosition()}.
+ *
+ * @author Kazó Csaba
+ */
+final class TicTacToeCursor
+    implements SearchCursor<TicTacToePosition, TicTacToeMove, SquareSymmetry> {
+
+  private final TicTacToePosition start;
+  private final Player[][] board = new Player[3][3];
+  private int length;
+
+  /** The statuses of the positions along the path; the current one is at index {@code length}. */
+  private final GameStatus[] statuses = new GameStatus[10];
+  /** The cells of the moves made, as {@code 3 * x + y}. */
+  private final int[] cells = new int[9];
+  /**
+   * The board keys of the positions along the path, in rows of
+   * {@link TicTacToePosition#ROW_LENGTH}; the row of the position after {@code i} moves starts at
+   * {@code i * TicTacToePosition.ROW_LENGTH}.
+   */
+  private final long[] boardKeys = new long[10 * TicTacToePosition.ROW_LENGTH];
+  /** The number of rows of {@link #boardKeys} that belong to the current path. */
+  private int keyRows = 1;
+
+  TicTacToeCursor(TicTacToePosition start) {
+    this.start = start;
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        board[x][y] = start.getCell(x, y);
+      }
+    }
+    statuses[0] = start.getStatus();
+    TicTacToePosition.getBoardKeys(board, boardKeys, 0);
+  }
+
+  @Override
+  public GameStatus getStatus() {
+    return statuses[length];
+  }
+
+  @Override
+  public int getMoveCount() {
+    return TicTacToePosition.getMoveCount(board, statuses[length]);
+  }
+
+  @Override
+  public TicTacToeMove getMove(int index) {
+    return TicTacToePosition.getMove(board, statuses[length], index);
+  }
+
+  @Override
+  public void move(int moveIndex) {
+    GameStatus status = statuses[length];
+    TicTacToeMove move = TicTacToePosition.getMove(board, status, moveIndex);
+    board[move.getX()][move.getY()] = status.getCurrentPlayer();
+    cells[length] = 3 * move.getX() + move.getY();
+    length++;
+    statuses[length] =
+        TicTacToePosition.getStatusAfterMove(board, move.getX(), move.getY(), status);
+  }
+
+  @Override
+  public void back() {
+    if (length == 0) {
+      throw new IllegalStateException("No move to undo");
+    }
+    length--;
+    keyRows = Math.min(keyRows, length + 1);
+    board[cells[length] / 3][cells[length] % 3] = null;
+  }
+
+  @Override
+  public int getLength() {
+    return length;
+  }
+
+  @Override
+  public TicTacToePosition toPosition() {
+    if (length == 0) {
+      return start;
+    }
+    Player[][] positionBoard = new Player[3][];
+    for (int x = 0; x < 3; x++) {
+      positionBoard[x] = board[x].clone();
+    }
+    for (; keyRows <= length; keyRows++) {
+      int i = keyRows - 1;
+      TicTacToePosition.move(boardKeys, i * TicTacToePosition.ROW_LENGTH,
+          keyRows * TicTacToePosition.ROW_LENGTH, statuses[i].getCurrentPlayer(), cells[i]);
+    }
+    return TicTacToePosition.create(positionBoard, statuses[length], boardKeys,
+        length * TicTacToePosition.ROW_LENGTH);
+  }
+}
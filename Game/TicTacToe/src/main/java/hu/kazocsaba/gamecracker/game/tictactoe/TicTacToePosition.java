@@ -6,17 +6,18 @@ import hu.kazocsaba.gamecracker.game.GameStatus;
 import hu.kazocsaba.gamecracker.game.Player;
 import hu.kazocsaba.gamecracker.game.Position;
 import hu.kazocsaba.gamecracker.game.PositionSerializer;
+import hu.kazocsaba.gamecracker.game.SearchCursor;
 import hu.kazocsaba.gamecracker.game.SquareSymmetry;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 /**
  * A position in Tic Tac Toe.
@@ -25,8 +26,52 @@ import java.util.List;
  */
 public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove, SquareSymmetry> {
 
+  // Avoid copying the array in values() by using our own instance
+  private static final SquareSymmetry[] SYMMETRIES = SquareSymmetry.values();
+  /**
+   * The Zobrist keys of the marks: {@code MARK_KEYS[t][player][3 * x + y]} is the value of a mark
+   * of the player on the cell (x, y) in the key of the board transformed by {@code t}. The keys are
+   * generated by a fixed seed, so they are the same in every run.
+   */
+  private static final long[][][] MARK_KEYS = new long[SYMMETRIES.length][2][9];
+  private static final int IDENTITY = SquareSymmetry.IDENTITY.ordinal();
+  /** The number of board keys in a row, one for each symmetry. */
+  static final int ROW_LENGTH = SYMMETRIES.length;
+
+  static {
+    Random random = new Random(0x5EED0003L);
+    long[][] keys = new long[2][9];
+    for (int player = 0; player < 2; player++) {
+      for (int cell = 0; cell < 9; cell++) {
+        keys[player][cell] = random.nextLong();
+      }
+    }
+    for (SquareSymmetry t : SYMMETRIES) {
+      for (int x = 0; x < 3; x++) {
+        for (int y = 0; y < 3; y++) {
+          int target = 3 * t.transformX(x, y, 3) + t.transformY(x, y, 3);
+          for (int player = 0; player < 2; player++) {
+            MARK_KEYS[t.ordinal()][player][3 * x + y] = keys[player][target];
+          }
+        }
+      }
+    }
+  }
+
   private final Player[][] board;
   private final GameStatus status;
+  /**
+   * The Zobrist key of the board. The key of a board is the xor of the values of its marks in
+   * {@link #MARK_KEYS}; the status is determined by the board, so it is not included.
+   */
+  private final long boardKey;
+  /**
+   * The cached result of {@link #getInvariantKey()}, or 0 if it has not been computed yet. Threads
+   * racing to compute it store the same value, so no locking is needed. A key that is really 0 is
+   * recomputed on every call. Apart from the empty board, whose key is cheap to compute, this has
+   * a chance of 2^-64, which does not justify a separate marker.
+   */
+  private volatile long invariantKey;
 
   static final CategoryFunction<TicTacToePosition> MOVE_COUNT_CATEGORY =
       new CategoryFunction<TicTacToePosition>() {
@@ -149,18 +194,86 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
         status = GameStatus.DRAW;
       }
 
-      return new TicTacToePosition(board, status);
+      return new TicTacToePosition(board, status, getBoardKey(board, IDENTITY), 0);
     }
   };
 
   TicTacToePosition() {
     board = new Player[3][3];
     status = GameStatus.WHITE_MOVES;
+    boardKey = 0;
   }
 
-  private TicTacToePosition(Player[][] board, GameStatus status) {
+  TicTacToePosition(Player[][] board, GameStatus status, long boardKey, long invariantKey) {
     this.board = board;
     this.status = status;
+    this.boardKey = boardKey;
+    this.invariantKey = invariantKey;
+  }
+
+  /**
+   * Computes the Zobrist key of the image of a board transformed by a symmetry.
+   *
+   * @param board the board
+   * @param t the ordinal of the symmetry
+   * @return the key of the transformed board
+   */
+  private static long getBoardKey(Player[][] board, int t) {
+    long key = 0;
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (board[x][y] != null) {
+          key ^= MARK_KEYS[t][board[x][y].ordinal()][3 * x + y];
+        }
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Computes the Zobrist keys of a board and its transformed images, for the rows maintained by a
+   * {@link TicTacToeCursor}.
+   *
+   * @param board the board
+   * @param keys the array to receive the row of the keys, indexed by the ordinal of the symmetry
+   * @param offset the start of the row in the array
+   */
+  static void getBoardKeys(Player[][] board, long[] keys, int offset) {
+    for (int t = 0; t < ROW_LENGTH; t++) {
+      keys[offset + t] = getBoardKey(board, t);
+    }
+  }
+
+  /**
+   * Computes the row of the board keys after a move from the row before the move.
+   *
+   * @param keys the array of the rows
+   * @param from the start of the row before the move
+   * @param to the start of the row to receive the keys after the move
+   * @param player the player who moved
+   * @param cell the cell of the move, as {@code 3 * x + y}
+   */
+  static void move(long[] keys, int from, int to, Player player, int cell) {
+    for (int t = 0; t < ROW_LENGTH; t++) {
+      keys[to + t] = keys[from + t] ^ MARK_KEYS[t][player.ordinal()][cell];
+    }
+  }
+
+  /**
+   * Creates a position from a row of board keys maintained by a {@link TicTacToeCursor}.
+   *
+   * @param board the board of the position, which will not be modified
+   * @param status the status of the position
+   * @param keys the array of the rows
+   * @param offset the start of the row of the position
+   * @return the position
+   */
+  static TicTacToePosition create(Player[][] board, GameStatus status, long[] keys, int offset) {
+    long key = Long.MAX_VALUE;
+    for (int t = 0; t < ROW_LENGTH; t++) {
+      key = Math.min(key, keys[offset + t]);
+    }
+    return new TicTacToePosition(board, status, keys[offset + IDENTITY], key);
   }
 
   @Override
@@ -181,46 +294,63 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
     }
     Player movingPlayer = status.getCurrentPlayer();
     newBoard[move.getX()][move.getY()] = movingPlayer;
+    GameStatus newStatus = getStatusAfterMove(newBoard, move.getX(), move.getY(), status);
+    long newBoardKey =
+        boardKey ^ MARK_KEYS[IDENTITY][movingPlayer.ordinal()][3 * move.getX() + move.getY()];
+    return new TicTacToePosition(newBoard, newStatus, newBoardKey, 0);
+  }
+
+  /**
+   * Determines the status after a move. The move must already be placed on the board.
+   *
+   * @param board the board after the move
+   * @param x the column of the move
+   * @param y the row of the move
+   * @param status the status before the move
+   * @return the status after the move
+   */
+  static GameStatus getStatusAfterMove(Player[][] board, int x, int y, GameStatus status) {
+    Player movingPlayer = status.getCurrentPlayer();
     GameStatus newStatus = status.getOther();
 
     // check if the moving player won
-    if (move.getX() == 0) {
-      if (newBoard[1][move.getY()] == movingPlayer && newBoard[2][move.getY()] == movingPlayer) {
+    if (x == 0) {
+      if (board[1][y] == movingPlayer && board[2][y] == movingPlayer) {
         // row
         newStatus = movingPlayer.getWinStatus();
-      } else if (newBoard[0][0] == movingPlayer && newBoard[0][1] == movingPlayer
-          && newBoard[0][2] == movingPlayer) {
+      } else if (board[0][0] == movingPlayer && board[0][1] == movingPlayer
+          && board[0][2] == movingPlayer) {
         // column
         newStatus = movingPlayer.getWinStatus();
-      } else if (move.getY() != 1 && newBoard[1][1] == movingPlayer
-          && newBoard[2][2 - move.getY()] == movingPlayer) {
+      } else if (y != 1 && board[1][1] == movingPlayer
+          && board[2][2 - y] == movingPlayer) {
         // diagonal
         newStatus = movingPlayer.getWinStatus();
       }
-    } else if (move.getX() == 1) {
-      if (newBoard[0][move.getY()] == movingPlayer && newBoard[2][move.getY()] == movingPlayer) {
+    } else if (x == 1) {
+      if (board[0][y] == movingPlayer && board[2][y] == movingPlayer) {
         // row
         newStatus = movingPlayer.getWinStatus();
-      } else if (newBoard[1][0] == movingPlayer && newBoard[1][1] == movingPlayer
-          && newBoard[1][2] == movingPlayer) {
+      } else if (board[1][0] == movingPlayer && board[1][1] == movingPlayer
+          && board[1][2] == movingPlayer) {
         // column
         newStatus = movingPlayer.getWinStatus();
-      } else if (move.getY() == 1 && (
-          (newBoard[0][0] == movingPlayer && newBoard[2][2] == movingPlayer)
-          || (newBoard[0][2] == movingPlayer && newBoard[2][0] == movingPlayer))) {
+      } else if (y == 1 && (
+          (board[0][0] == movingPlayer && board[2][2] == movingPlayer)
+          || (board[0][2] == movingPlayer && board[2][0] == movingPlayer))) {
         // diagonal
         newStatus = movingPlayer.getWinStatus();
       }
     } else {
-      if (newBoard[0][move.getY()] == movingPlayer && newBoard[1][move.getY()] == movingPlayer) {
+      if (board[0][y] == movingPlayer && board[1][y] == movingPlayer) {
         // row
         newStatus = movingPlayer.getWinStatus();
-      } else if (newBoard[2][0] == movingPlayer && newBoard[2][1] == movingPlayer
-          && newBoard[2][2] == movingPlayer) {
+      } else if (board[2][0] == movingPlayer && board[2][1] == movingPlayer
+          && board[2][2] == movingPlayer) {
         // column
         newStatus = movingPlayer.getWinStatus();
-      } else if (move.getY() != 1 && newBoard[1][1] == movingPlayer
-          && newBoard[0][2 - move.getY()] == movingPlayer) {
+      } else if (y != 1 && board[1][1] == movingPlayer
+          && board[0][2 - y] == movingPlayer) {
         // diagonal
         newStatus = movingPlayer.getWinStatus();
       }
@@ -228,9 +358,9 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
     if (!newStatus.isFinal()) {
       // check for draw
       boolean hasEmpty = false;
-      for (int x = 0; x < 3; x++) {
-        for (int y = 0; y < 3; y++) {
-          if (newBoard[x][y] == null) {
+      for (int column = 0; column < 3; column++) {
+        for (int row = 0; row < 3; row++) {
+          if (board[column][row] == null) {
             hasEmpty = true;
             break;
           }
@@ -240,7 +370,7 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
         newStatus = GameStatus.DRAW;
       }
     }
-    return new TicTacToePosition(newBoard, newStatus);
+    return newStatus;
   }
 
   @Override
@@ -265,10 +395,28 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
 
   @Override
   public int hashCode() {
-    int hash = 7;
-    hash = 37 * hash + Arrays.deepHashCode(this.board);
-    hash = 37 * hash + status.hashCode();
-    return hash;
+    return Long.hashCode(boardKey);
+  }
+
+  /**
+   * Returns the smallest Zobrist key among the transformed images of this position. The keys of the
+   * images are computed from the marks, without transforming the board, in time proportional to
+   * the size of the board, as positions only store the key of the identity image. The result is
+   * cached, and passed on by {@link #transform(SquareSymmetry)}. Positions created by a
+   * {@link SearchCursor} receive it from the keys maintained by the cursor, which updates them in
+   * constant time per move.
+   */
+  @Override
+  public long getInvariantKey() {
+    long key = invariantKey;
+    if (key == 0) {
+      key = Long.MAX_VALUE;
+      for (int t = 0; t < ROW_LENGTH; t++) {
+        key = Math.min(key, getBoardKey(board, t));
+      }
+      invariantKey = key;
+    }
+    return key;
   }
 
   @Override
@@ -288,6 +436,81 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
     return moves;
   }
 
+  @Override
+  public int getMoveCount() {
+    return getMoveCount(board, status);
+  }
+
+  /**
+   * Returns the number of valid moves in a position.
+   *
+   * @param board the board of the position
+   * @param status the status of the position
+   * @return the number of empty cells, or 0 if the game is over
+   */
+  static int getMoveCount(Player[][] board, GameStatus status) {
+    if (status.isFinal()) {
+      return 0;
+    }
+    int count = 0;
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (board[x][y] == null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public TicTacToeMove getMove(int index) {
+    return getMove(board, status, index);
+  }
+
+  /**
+   * Returns a valid move in a position. The moves are the empty cells, ordered by x, then by y.
+   *
+   * @param board the board of the position
+   * @param status the status of the position
+   * @param index the index of the move
+   * @return the specified move
+   * @throws IndexOutOfBoundsException if the index is not valid
+   */
+  static TicTacToeMove getMove(Player[][] board, GameStatus status, int index) {
+    if (!status.isFinal() && index >= 0) {
+      int remaining = index;
+      for (int x = 0; x < 3; x++) {
+        for (int y = 0; y < 3; y++) {
+          if (board[x][y] == null && remaining-- == 0) {
+            return TicTacToeMove.get(x, y);
+          }
+        }
+      }
+    }
+    throw new IndexOutOfBoundsException("Invalid move index: " + index);
+  }
+
+  @Override
+  public int getMoveIndex(TicTacToeMove move) {
+    if (status.isFinal() || board[move.getX()][move.getY()] != null) {
+      return -1;
+    }
+    // the number of empty cells preceding the cell of the move
+    int index = 0;
+    for (int cell = 0; cell < 3 * move.getX() + move.getY(); cell++) {
+      if (board[cell / 3][cell % 3] == null) {
+        index++;
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public SearchCursor<TicTacToePosition, TicTacToeMove, SquareSymmetry> createCursor() {
+    return new TicTacToeCursor(this);
+  }
+
   @Override
   public TicTacToePosition transform(SquareSymmetry t) {
     Player[][] newBoard = new Player[3][3];
@@ -296,7 +519,8 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
         newBoard[t.transformX(x, y, 3)][t.transformY(x, y, 3)] = board[x][y];
       }
     }
-    return new TicTacToePosition(newBoard, status);
+    // the key of the new board is the key of the image of this one by the symmetry
+    return new TicTacToePosition(newBoard, status, getBoardKey(board, t.ordinal()), invariantKey);
   }
 
   @Override
@@ -328,6 +552,40 @@ public class TicTacToePosition extends Position<TicTacToePosition, TicTacToeMove
     return possibleTransformations.iterator().next();
   }
 
+  /**
+   * Returns the transformation leading to the canonical form of this position. The canonical form is
+   * the transformed board with the smallest {@link #getCode(SquareSymmetry) code}.
+   */
+  @Override
+  public SquareSymmetry getCanonicalTransformation() {
+    SquareSymmetry canonical = null;
+    int canonicalCode = 0;
+    for (SquareSymmetry trans : SYMMETRIES) {
+      int code = getCode(trans);
+      if (canonical == null || code < canonicalCode) {
+        canonical = trans;
+        canonicalCode = code;
+      }
+    }
+    return canonical;
+  }
+
+  /**
+   * Encodes the board transformed by a symmetry, using 2 bits for each cell.
+   */
+  private int getCode(SquareSymmetry trans) {
+    int code = 0;
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 3; y++) {
+        if (board[x][y] != null) {
+          int cell = 3 * trans.transformX(x, y, 3) + trans.transformY(x, y, 3);
+          code |= (board[x][y] == Player.WHITE ? 1 : 2) << (2 * cell);
+        }
+      }
+    }
+    return code;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder(13);
@@ -11,7 +11,10 @@ import hu.kazocsaba.gamecracker.game.testing.AbstractGameTest;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 
 /**
  *
@@ -164,6 +167,69 @@ public class TicTacToeTest
     }
   }
 
+  /**
+   * Enumerates all reachable positions, checking that related positions have the same canonical
+   * form and invariant key, and that these distinguish the unrelated positions.
+   */
+  @Test
+  public void testCanonicalForms() {
+    // the number of tic-tac-toe positions up to symmetry, by the number of marks
+    int[] expectedCounts = {1, 3, 12, 38, 108, 174, 204, 153, 57, 15};
+    Set<TicTacToePosition> layer = Collections.singleton(game.getInitialPosition());
+    for (int marks = 0; !layer.isEmpty(); marks++) {
+      Set<TicTacToePosition> canonicalForms = new HashSet<>();
+      Set<Long> invariantKeys = new HashSet<>();
+      Set<TicTacToePosition> nextLayer = new HashSet<>();
+      for (TicTacToePosition position : layer) {
+        TicTacToePosition canonicalForm = position.getCanonicalForm();
+        assertEquals(position.transform(position.getCanonicalTransformation()), canonicalForm);
+        long invariantKey = position.getInvariantKey();
+        for (SquareSymmetry trans : SquareSymmetry.values()) {
+          assertEquals(canonicalForm, position.transform(trans).getCanonicalForm());
+          assertEquals(invariantKey, position.transform(trans).getInvariantKey());
+        }
+        canonicalForms.add(canonicalForm);
+        invariantKeys.add(invariantKey);
+        for (TicTacToeMove move : position.getMoves()) {
+          nextLayer.add(position.move(move));
+        }
+      }
+      assertEquals(expectedCounts[marks], canonicalForms.size());
+      assertEquals(expectedCounts[marks], invariantKeys.size());
+      layer = nextLayer;
+    }
+  }
+
+  /**
+   * Checks the index-based move functions in all reachable positions.
+   */
+  @Test
+  public void testMoveIndices() {
+    Set<TicTacToePosition> layer = Collections.singleton(game.getInitialPosition());
+    while (!layer.isEmpty()) {
+      Set<TicTacToePosition> nextLayer = new HashSet<>();
+      for (TicTacToePosition position : layer) {
+        assertMovesIndexed(position);
+        for (TicTacToeMove move : position.getMoves()) {
+          nextLayer.add(position.move(move));
+        }
+      }
+      layer = nextLayer;
+    }
+  }
+
+  @Test
+  public void testCursor() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      assertCursorConsistent(game.getInitialPosition(), random, 30);
+    }
+    TicTacToePosition position = game.getInitialPosition();
+    position = position.move(TicTacToeMove.get(1, 1));
+    position = position.move(TicTacToeMove.get(0, 1));
+    assertCursorConsistent(position, random, 30);
+  }
+
   @Test
   public void positionIOTest() {
     // win on edge with move in middle
@@ -91,8 +91,8 @@ public enum GraphResult {
    */
   public boolean canWin(Player player) {
     switch (player) {
-      case WHITE: return this != WHITE_WONT_WIN && this != BLACK_WINS;
-      default: return this != BLACK_WONT_WIN && this != WHITE_WINS;
+      case WHITE: return this == UNKNOWN || this == BLACK_WONT_WIN || this == WHITE_WINS;
+      default: return this == UNKNOWN || this == WHITE_WONT_WIN || this == BLACK_WINS;
     }
   }
 
@@ -106,6 +106,24 @@ public enum GraphResult {
     return this == DRAW || this == WHITE_WINS || this == BLACK_WINS;
   }
 
+  /**
+   * Returns whether this result is at least as specific as another one, that is, whether every game
+   * result allowed by this result is also allowed by {@code other}. As the graph grows, the result
+   * of a node only changes to results refining its previous result.
+   *
+   * @param other a result
+   * @return {@code true} if this result is the same as {@code other} or it narrows down the possible
+   * game results of {@code other}
+   */
+  public boolean refines(GraphResult other) {
+    switch (other) {
+      case UNKNOWN: return true;
+      case WHITE_WONT_WIN: return this == WHITE_WONT_WIN || this == BLACK_WINS || this == DRAW;
+      case BLACK_WONT_WIN: return this == BLACK_WONT_WIN || this == WHITE_WINS || this == DRAW;
+      default: return this == other;
+    }
+  }
+
   /**
    * Returns either {@code GameStatus.WHITE_WINS}, {@code GameStatus.BLACK_WINS}, or
    * {@code GameStatus.DRAW}, based on the value of this result.
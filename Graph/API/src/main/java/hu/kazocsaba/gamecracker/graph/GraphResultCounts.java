@@ -0,0 +1,130 @@
+package hu.kazocsaba.gamecracker.graph;
+
+import hu.kazocsaba.gamecracker.game.Player;
+
+/**
+ * Utility class to maintain the result of a node incrementally, by counting the results of the
+ * moves available in it.
+ *
+ * <p>Whereas {@link GraphResultComputer} needs to iterate all the moves of a node every time the
+ * result of one of them changes, the counts are updated in constant time when a single move result
+ * changes, and the result of the node is also computed from them in constant time. The counts are
+ * packed into a single {@code long} value, so no objects need to be allocated.
+ * <h4>Usage example</h4>
+ * <pre>
+ * {@code
+ * long counts = GraphResultCounts.start(node.getChildCount());
+ * ...
+ * // the result of a move changed from oldResult to newResult
+ * counts = GraphResultCounts.change(counts, oldResult, newResult);
+ * nodeResult = GraphResultCounts.get(counts, status.getCurrentPlayer());
+ * }</pre>
+ *
+ * @author Kazó Csaba
+ */
+public final class GraphResultCounts {
+  /*
+   * The counts of the graph results are stored in 10-bit fields, the field for a result is selected
+   * by its ordinal. The result of the node only depends on which results are present among the
+   * moves, so it is looked up in a table indexed by the set of nonzero fields. The table is filled
+   * using GraphResultComputer, feeding it one move for each of the present results.
+   */
+  private static final int FIELD_BITS = 10;
+  private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+  private static final GraphResult[] RESULTS = GraphResult.values();
+
+  /**
+   * The maximum number of moves that can be counted.
+   */
+  public static final int MAX_MOVES = (int) FIELD_MASK;
+
+  private static final GraphResult[] WHITE_RESULTS = createTable(Player.WHITE);
+  private static final GraphResult[] BLACK_RESULTS = createTable(Player.BLACK);
+
+  private GraphResultCounts() {
+  }
+
+  private static GraphResult[] createTable(Player player) {
+    GraphResult[] table = new GraphResult[1 << RESULTS.length];
+    for (int presence = 1; presence < table.length; presence++) {
+      GraphResultComputer resultComputer = GraphResultComputer.start(player);
+      for (GraphResult result : RESULTS) {
+        if ((presence & (1 << result.ordinal())) != 0) {
+          resultComputer = resultComputer.withMove(result);
+        }
+      }
+      table[presence] = resultComputer.get();
+    }
+    return table;
+  }
+
+  private static int shift(GraphResult result) {
+    return result.ordinal() * FIELD_BITS;
+  }
+
+  /**
+   * Returns the counts for a node whose move results are all unknown.
+   *
+   * @param moveCount the number of moves available in the node
+   * @return the counts with {@code moveCount} unknown results
+   * @throws IllegalArgumentException if {@code moveCount} is negative or greater than
+   * {@link #MAX_MOVES}
+   */
+  public static long start(int moveCount) {
+    if (moveCount < 0 || moveCount > MAX_MOVES) {
+      throw new IllegalArgumentException("Invalid move count: " + moveCount);
+    }
+    return (long) moveCount << shift(GraphResult.UNKNOWN);
+  }
+
+  /**
+   * Returns the number of moves with the specified result.
+   *
+   * @param counts the counts
+   * @param result the move result
+   * @return the number of moves leading to {@code result}
+   */
+  public static int count(long counts, GraphResult result) {
+    return (int) ((counts >>> shift(result)) & FIELD_MASK);
+  }
+
+  /**
+   * Updates the counts when the result of a move changes.
+   *
+   * @param counts the counts
+   * @param oldResult the previous result of the move
+   * @param newResult the new result of the move
+   * @return the updated counts
+   * @throws IllegalArgumentException if no move has the result {@code oldResult}
+   */
+  public static long change(long counts, GraphResult oldResult, GraphResult newResult) {
+    if (count(counts, oldResult) == 0) {
+      throw new IllegalArgumentException("No move with result " + oldResult);
+    }
+    return counts - (1L << shift(oldResult)) + (1L << shift(newResult));
+  }
+
+  /**
+   * Returns the result of the node based on the counts of the move results.
+   *
+   * @param counts the counts
+   * @param player the player to move
+   * @return the current graph result
+   * @throws IllegalStateException if there are no moves
+   */
+  public static GraphResult get(long counts, Player player) {
+    int presence = 0;
+    for (int i = 0; i < RESULTS.length; i++) {
+      if (((counts >>> (i * FIELD_BITS)) & FIELD_MASK) != 0) {
+        presence |= 1 << i;
+      }
+    }
+    if (presence == 0) {
+      throw new IllegalStateException("No moves provided");
+    }
+    switch (player) {
+      case WHITE: return WHITE_RESULTS[presence];
+      default: return BLACK_RESULTS[presence];
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package hu.kazocsaba.gamecracker.graph;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves games by expanding their graph in parallel, using a fork/join pool.
+ *
+ * <p>The game tree is split into tasks at the top levels: a task for a position closer to the
+ * starting position than the split depth forks a subtask for each of its moves. Below the split
+ * depth, a task searches its subtree sequentially, depth-first, stopping as soon as the result of
+ * the current position becomes known. All tasks expand the same graph, so transpositions found by
+ * one task are reused by the others. A task also stops as soon as the result of the position of any
+ * of its ancestor tasks becomes known, since its result is no longer needed.
+ *
+ * <p>Since the tasks create separate matches on the graph and use them from different threads, the
+ * graph must support concurrent matches (like {@code ConcurrentGraph}), unless the pool has a
+ * parallelism of 1.
+ *
+ * @author Kazó Csaba
+ */
+public class GraphSolver {
+
+  private final ForkJoinPool pool;
+  private final int splitDepth;
+
+  /**
+   * Creates a solver using the common fork/join pool.
+   *
+   * @param splitDepth the number of moves from the starting position up to which positions are
+   *     split into subtasks; 0 solves the whole game in a single task
+   * @throws IllegalArgumentException if {@code splitDepth} is negative
+   */
+  public GraphSolver(int splitDepth) {
+    this(ForkJoinPool.commonPool(), splitDepth);
+  }
+
+  /**
+   * Creates a solver.
+   *
+   * @param pool the pool to execute the tasks in
+   * @param splitDepth the number of moves from the starting position up to which positions are
+   *     split into subtasks; 0 solves the whole game in a single task
+   * @throws IllegalArgumentException if {@code splitDepth} is negative
+   */
+  public GraphSolver(ForkJoinPool pool, int splitDepth) {
+    if (splitDepth < 0) {
+      throw new IllegalArgumentException("Invalid split depth: " + splitDepth);
+    }
+    this.pool = Objects.requireNonNull(pool);
+    this.splitDepth = splitDepth;
+  }
+
+  /**
+   * Solves the game of a graph from its root position.
+   *
+   * @param graph the graph to expand
+   * @return the result of the root position; it is known unless the game cannot be solved
+   */
+  public <P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+      GraphResult solve(Graph<P, M, T> graph) {
+    return solve(graph, Collections.<M>emptyList());
+  }
+
+  /**
+   * Solves the subtree of a position of a graph.
+   *
+   * @param graph the graph to expand
+   * @param moves the moves leading from the root position of the graph to the position to solve
+   * @return the result of the position; it is known unless the game cannot be solved
+   * @throws IllegalArgumentException if the moves are not valid
+   */
+  public <P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+      GraphResult solve(Graph<P, M, T> graph, List<M> moves) {
+    GraphMatch<P, M, T> match = graph.createMatch();
+    int[] path = new int[moves.size()];
+    for (int i = 0; i < path.length; i++) {
+      path[i] = match.getPosition().getMoveIndex(moves.get(i));
+      if (path[i] == -1) {
+        throw new IllegalArgumentException("Invalid move: " + moves.get(i));
+      }
+      match.move(path[i]);
+    }
+    return pool.invoke(new SolveTask<>(graph, null, path, 0));
+  }
+
+  private final class SolveTask<
+      P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+      extends RecursiveTask<GraphResult> {
+
+    private final Graph<P, M, T> graph;
+    private final SolveTask<P, M, T> parent;
+    /** The indices of the moves leading from the root position to the position of this task. */
+    private final int[] path;
+    /** The number of moves from the starting position of the solver. */
+    private final int depth;
+    /**
+     * The match positioned at the position of this task. It is created by the task, and it is not
+     * modified while the subtasks are running; they only read its result.
+     */
+    private GraphMatch<P, M, T> match;
+
+    SolveTask(Graph<P, M, T> graph, SolveTask<P, M, T> parent, int[] path, int depth) {
+      this.graph = graph;
+      this.parent = parent;
+      this.path = path;
+      this.depth = depth;
+    }
+
+    /**
+     * Returns whether the result of an ancestor task is known, making this task unnecessary.
+     */
+    private boolean isObsolete() {
+      for (SolveTask<P, M, T> task = parent; task != null; task = task.parent) {
+        if (task.match.getResult().isKnown()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected GraphResult compute() {
+      match = graph.createMatch();
+      for (int moveIndex : path) {
+        match.move(moveIndex);
+      }
+      if (match.getResult().isKnown() || isObsolete()) {
+        return match.getResult();
+      }
+      if (depth < splitDepth) {
+        List<SolveTask<P, M, T>> subtasks = new ArrayList<>(match.getMoveCount());
+        for (int i = 0; i < match.getMoveCount(); i++) {
+          int[] subtaskPath = new int[path.length + 1];
+          System.arraycopy(path, 0, subtaskPath, 0, path.length);
+          subtaskPath[path.length] = i;
+          subtasks.add(new SolveTask<>(graph, this, subtaskPath, depth + 1));
+        }
+        invokeAll(subtasks);
+      } else {
+        search();
+      }
+      return match.getResult();
+    }
+
+    /**
+     * Searches the subtree of the current position of the match sequentially.
+     */
+    private void search() {
+      for (int i = 0;
+          i < match.getMoveCount() && !match.getResult().isKnown() && !isObsolete();
+          i++) {
+        match.move(i);
+        search();
+        match.back();
+      }
+    }
+  }
+}
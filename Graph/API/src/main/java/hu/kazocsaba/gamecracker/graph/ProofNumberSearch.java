@@ -0,0 +1,201 @@
+package hu.kazocsaba.gamecracker.graph;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+/**
+ * Solves positions by proof-number search, expanding the graph through a {@link GraphMatch}.
+ *
+ * <p>Proof-number search is a best-first search: it always expands the most-proving node, the leaf
+ * which contributes the most to proving or disproving the root with the least effort, as estimated
+ * by the proof and disproof numbers of the nodes. The search keeps a tree of proof and disproof
+ * numbers alongside the graph nodes it has visited, and uses the graph results of the nodes as
+ * proofs: a node whose graph result shows that a player wins is a proof of that player winning,
+ * and a node where the player cannot win anymore (for example because its graph result is that the
+ * player won't win) is a disproof. Since the graph propagates the results of the expanded nodes,
+ * positions solved through transpositions are recognized as well.
+ *
+ * <p>A single search proves or disproves that a player wins. To find the result of a position, the
+ * search first tries to prove that the player to move wins; if that is disproved, it tries to prove
+ * that the other player wins, and if that is also disproved, the result is a draw.
+ *
+ * @author Kazó Csaba
+ */
+public class ProofNumberSearch {
+
+  /** The proof or disproof number of a solved node. */
+  private static final int INFINITY = Integer.MAX_VALUE;
+
+  private long expansions;
+
+  /**
+   * A node of the proof-number tree. The node corresponds to the position reached by the moves of
+   * its ancestors, and its children to the moves of the position, in the same order.
+   */
+  private static final class PnNode {
+    final PnNode parent;
+    /** The index of the move leading to this node from its parent. */
+    final int moveIndex;
+    /** Whether the attacker is to move in this node. */
+    boolean or;
+    int proof;
+    int disproof;
+    /** The children, or {@code null} if the node is not expanded, or it is already solved. */
+    PnNode[] children;
+
+    PnNode(PnNode parent, int moveIndex) {
+      this.parent = parent;
+      this.moveIndex = moveIndex;
+    }
+
+    boolean isSolved() {
+      return proof == 0 || disproof == 0;
+    }
+  }
+
+  /**
+   * Returns the number of nodes expanded by this instance so far.
+   *
+   * @return the number of expanded nodes
+   */
+  public long getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * Solves the current position of a match. The match is used to navigate the graph, and it is
+   * returned to its original position when the search finishes.
+   *
+   * @param match the match whose current position is to be solved
+   * @return the result of the position; it is known unless the game cannot be solved
+   */
+  public <P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+      GraphResult solve(GraphMatch<P, M, T> match) {
+    if (!match.getResult().isKnown()) {
+      Player player = match.getPosition().getStatus().getCurrentPlayer();
+      if (!prove(match, player)) {
+        prove(match, player.getOther());
+      }
+    }
+    return match.getResult();
+  }
+
+  /**
+   * Proves or disproves that a player wins from the current position of a match. The match is
+   * returned to its original position when the search finishes.
+   *
+   * @param match the match whose current position is to be searched
+   * @param attacker the player whose win is to be proved
+   * @return {@code true} if {@code attacker} wins, {@code false} if {@code attacker} cannot win
+   */
+  public <P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+      boolean prove(GraphMatch<P, M, T> match, Player attacker) {
+    PnNode root = new PnNode(null, -1);
+    evaluate(root, match, attacker);
+    PnNode current = root;
+    while (!root.isSolved()) {
+      /*
+       * Descend to the most-proving node: in an OR node the child with the smallest proof number,
+       * in an AND node the child with the smallest disproof number.
+       */
+      while (current.children != null) {
+        current = selectChild(current);
+        match.move(current.moveIndex);
+      }
+      expand(current, match, attacker);
+      /*
+       * Update the ancestors. Once the numbers of a node do not change, the numbers of its
+       * ancestors do not change either, so the next descent can start from this node.
+       */
+      while (update(current, match, attacker) && current != root) {
+        current = current.parent;
+        match.back();
+      }
+    }
+    while (current != root) {
+      current = current.parent;
+      match.back();
+    }
+    return root.proof == 0;
+  }
+
+  private static PnNode selectChild(PnNode node) {
+    PnNode best = null;
+    for (PnNode child : node.children) {
+      if (best == null
+          || (node.or ? child.proof < best.proof : child.disproof < best.disproof)) {
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Initializes the proof and disproof numbers of a new node at the current position of the match.
+   */
+  private static void evaluate(PnNode node, GraphMatch<?, ?, ?> match, Player attacker) {
+    if (!setFromResult(node, match.getResult(), attacker)) {
+      node.or = match.getPosition().getStatus().getCurrentPlayer() == attacker;
+      node.proof = 1;
+      node.disproof = 1;
+    }
+  }
+
+  /**
+   * Sets the numbers of a node if its graph result decides whether the attacker wins.
+   *
+   * @return {@code true} if the node is solved by the result
+   */
+  private static boolean setFromResult(PnNode node, GraphResult result, Player attacker) {
+    if (result.willWin(attacker)) {
+      node.proof = 0;
+      node.disproof = INFINITY;
+    } else if (!result.canWin(attacker)) {
+      node.proof = INFINITY;
+      node.disproof = 0;
+    } else {
+      return false;
+    }
+    node.children = null;
+    return true;
+  }
+
+  private void expand(PnNode node, GraphMatch<?, ?, ?> match, Player attacker) {
+    expansions++;
+    PnNode[] children = new PnNode[match.getMoveCount()];
+    for (int i = 0; i < children.length; i++) {
+      match.move(i);
+      children[i] = new PnNode(node, i);
+      evaluate(children[i], match, attacker);
+      match.back();
+    }
+    node.children = children;
+  }
+
+  /**
+   * Recomputes the proof and disproof numbers of a node from its children and its graph result.
+   *
+   * @return {@code true} if the numbers have changed
+   */
+  private static boolean update(PnNode node, GraphMatch<?, ?, ?> match, Player attacker) {
+    int oldProof = node.proof;
+    int oldDisproof = node.disproof;
+    if (!setFromResult(node, match.getResult(), attacker)) {
+      int min = INFINITY;
+      long sum = 0;
+      for (PnNode child : node.children) {
+        min = Math.min(min, node.or ? child.proof : child.disproof);
+        sum += node.or ? child.disproof : child.proof;
+      }
+      int saturatedSum = (int) Math.min(sum, INFINITY);
+      node.proof = node.or ? min : saturatedSum;
+      node.disproof = node.or ? saturatedSum : min;
+      if (node.isSolved()) {
+        node.children = null;
+      }
+    }
+    return node.proof != oldProof || node.disproof != oldDisproof;
+  }
+}
@@ -1,6 +1,7 @@
 package hu.kazocsaba.gamecracker.graph;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import hu.kazocsaba.gamecracker.game.Player;
 
@@ -45,6 +46,33 @@ public class GraphResultComputerTest {
     }
   }
 
+  @Test
+  public void testMonotonicity() {
+    GraphResult[] values = GraphResult.values();
+    GraphResult[] results = new GraphResult[3];
+    GraphResult[] refined = new GraphResult[3];
+    for (int i = 0; i < values.length * values.length * values.length; i++) {
+      results[0] = values[i % values.length];
+      results[1] = values[i / values.length % values.length];
+      results[2] = values[i / values.length / values.length];
+      for (int j = 0; j < values.length * values.length * values.length; j++) {
+        refined[0] = values[j % values.length];
+        refined[1] = values[j / values.length % values.length];
+        refined[2] = values[j / values.length / values.length];
+        if (refined[0].refines(results[0])
+            && refined[1].refines(results[1])
+            && refined[2].refines(results[2])) {
+          for (Player player : Player.values()) {
+            assertTrue(
+                "Not monotonic for " + player + "'s move from " + Arrays.toString(results)
+                    + " to " + Arrays.toString(refined),
+                compute(player, refined).refines(compute(player, results)));
+          }
+        }
+      }
+    }
+  }
+
   private static GraphResult compute(Player player, GraphResult[] results) {
     GraphResultComputer resultComputer = GraphResultComputer.start(player);
     for (GraphResult result : results) {
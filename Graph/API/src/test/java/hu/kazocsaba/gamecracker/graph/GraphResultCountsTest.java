@@ -0,0 +1,86 @@
+package hu.kazocsaba.gamecracker.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import hu.kazocsaba.gamecracker.game.Player;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class GraphResultCountsTest {
+
+  @Test
+  public void testRandomChanges() {
+    GraphResult[] values = GraphResult.values();
+    Random random = new Random(2451);
+    for (int round = 0; round < 2000; round++) {
+      Player player = random.nextBoolean() ? Player.WHITE : Player.BLACK;
+      GraphResult[] results = new GraphResult[1 + random.nextInt(20)];
+      Arrays.fill(results, GraphResult.UNKNOWN);
+      long counts = GraphResultCounts.start(results.length);
+      assertEquals(GraphResult.UNKNOWN, GraphResultCounts.get(counts, player));
+
+      for (int step = 0; step < 50; step++) {
+        int index = random.nextInt(results.length);
+        GraphResult newResult = values[random.nextInt(values.length)];
+        counts = GraphResultCounts.change(counts, results[index], newResult);
+        results[index] = newResult;
+
+        assertEquals("Wrong result for " + player + "'s move to " + Arrays.toString(results),
+            compute(player, results), GraphResultCounts.get(counts, player));
+        for (GraphResult result : values) {
+          int count = 0;
+          for (GraphResult r : results) {
+            if (r == result) {
+              count++;
+            }
+          }
+          assertEquals(count, GraphResultCounts.count(counts, result));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMaxMoves() {
+    long counts = GraphResultCounts.start(GraphResultCounts.MAX_MOVES);
+    for (int i = 0; i < GraphResultCounts.MAX_MOVES - 1; i++) {
+      counts = GraphResultCounts.change(counts, GraphResult.UNKNOWN, GraphResult.BLACK_WINS);
+    }
+    assertEquals(1, GraphResultCounts.count(counts, GraphResult.UNKNOWN));
+    assertEquals(GraphResult.UNKNOWN, GraphResultCounts.get(counts, Player.WHITE));
+    counts = GraphResultCounts.change(counts, GraphResult.UNKNOWN, GraphResult.BLACK_WINS);
+    assertEquals(GraphResultCounts.MAX_MOVES,
+        GraphResultCounts.count(counts, GraphResult.BLACK_WINS));
+    assertEquals(GraphResult.BLACK_WINS, GraphResultCounts.get(counts, Player.WHITE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyMoves() {
+    GraphResultCounts.start(GraphResultCounts.MAX_MOVES + 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testChangeMissingResult() {
+    GraphResultCounts.change(GraphResultCounts.start(3), GraphResult.DRAW, GraphResult.UNKNOWN);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNoMoves() {
+    GraphResultCounts.get(GraphResultCounts.start(0), Player.WHITE);
+  }
+
+  private static GraphResult compute(Player player, GraphResult[] results) {
+    GraphResultComputer resultComputer = GraphResultComputer.start(player);
+    for (GraphResult result : results) {
+      resultComputer = resultComputer.withMove(result);
+    }
+    return resultComputer.get();
+  }
+}
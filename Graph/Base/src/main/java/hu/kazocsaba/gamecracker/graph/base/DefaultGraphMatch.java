@@ -47,12 +47,12 @@ public class DefaultGraphMatch<
 
   @Override
   public int getMoveCount() {
-    return pointList.getLast().moves.size();
+    return pointList.getLast().getMoves().size();
   }
 
   @Override
   public M getMove(int index) {
-    return pointList.getLast().moves.get(index);
+    return pointList.getLast().getMoves().get(index);
   }
 
   @Override
@@ -62,7 +62,7 @@ public class DefaultGraphMatch<
 
   @Override
   public void move(M move) {
-    int moveIndex = pointList.getLast().moves.indexOf(move);
+    int moveIndex = pointList.getLast().getMoves().indexOf(move);
     if (moveIndex == -1) {
       throw new IllegalArgumentException("Invalid move: " + move);
     }
@@ -71,7 +71,7 @@ public class DefaultGraphMatch<
 
   @Override
   public void move(int moveIndex) {
-    move(pointList.getLast().moves.get(moveIndex), moveIndex);
+    move(pointList.getLast().getMoves().get(moveIndex), moveIndex);
   }
 
   private void move(M move, int moveIndex) {
@@ -95,7 +95,8 @@ public class DefaultGraphMatch<
       nextNormal = childTrans.getLinkedNode();
     }
 
-    pointList.add(moveIndex, currentPoint.position.move(move), nextNormal, newTransformation);
+    pointList.add(
+        moveIndex, currentPoint.position.moveByIndex(moveIndex), nextNormal, newTransformation);
   }
 
   @Override
@@ -233,8 +234,9 @@ public class DefaultGraphMatch<
     private int moveIndex;
 
     /**
-     * The valid moves of the current position; retrieved and cached from
-     * {@link Position#getMoves()}.
+     * The valid moves of the position; retrieved from {@link Position#getMoves()} when first
+     * needed, and cached so that iterating over the moves by index does not create a list for every
+     * move.
      */
     private List<M> moves;
 
@@ -248,7 +250,14 @@ public class DefaultGraphMatch<
       if (moveIndex == -1) {
         return null;
       }
-      return moves.get(moveIndex);
+      return getMoves().get(moveIndex);
+    }
+
+    public List<M> getMoves() {
+      if (moves == null) {
+        moves = position.getMoves();
+      }
+      return moves;
     }
 
     /**
@@ -259,7 +268,7 @@ public class DefaultGraphMatch<
       this.node = node;
       this.transformationToGraph = transformationToGraph;
       moveIndex = -1;
-      moves = position.getMoves();
+      moves = null;
     }
   }
 }
@@ -0,0 +1,337 @@
+package hu.kazocsaba.gamecracker.graph.base;
+
+import hu.kazocsaba.gamecracker.game.CategoryFunction;
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+
+
+/**
+ * Solves positions by depth-first proof-number search (df-pn) with a fixed-size transposition
+ * table.
+ *
+ * <p>Like best-first proof-number search, df-pn always expands the most-proving node, but instead
+ * of keeping the whole search tree in memory, it searches depth-first: a node is searched only
+ * until its proof or disproof number reaches a threshold derived from its siblings, and the proof
+ * and disproof numbers of the nodes are kept in a transposition table. The table has a fixed
+ * number of entries, given when the search is created; when a new entry does not fit, it replaces
+ * the entry in its bucket whose subtree took the least effort to search. Lost entries only cost
+ * repeated work, so the search proves the root even when the table is much smaller than the
+ * searched tree. Apart from the table, the search only uses memory proportional to the depth of
+ * the game tree.
+ *
+ * <p>The table is keyed by the {@link CategoryFunction category} and the
+ * {@link InvariantKeyFunction invariant key} of the positions, and an entry is used for any
+ * position which can be transformed into the stored position. Since a transformation that switches
+ * the players also switches the roles of the proving and the disproving player, the entries record
+ * whether the proving player is to move instead of the player itself.
+ *
+ * <p>A single search proves or disproves that a player wins. To find the result of a position, the
+ * search first tries to prove that the player to move wins; if that is disproved, it tries to prove
+ * that the other player wins, and if that is also disproved, the result is a draw.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+public class DepthFirstProofNumberSearch<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  /** The proof or disproof number of a solved node. */
+  private static final int INFINITY = Integer.MAX_VALUE;
+
+  /** The number of consecutive table entries a position can be stored in. */
+  private static final int BUCKET_SIZE = 4;
+
+  private final CategoryFunction<P> categoryFunction;
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+
+  /*
+   * The transposition table, stored in parallel arrays. An entry is empty if its position is null.
+   */
+  private final Object[] positions;
+  private final long[] categories;
+  private final int[] keys;
+  /** Whether the proving player is to move in the position of the entry. */
+  private final boolean[] orNodes;
+  private final int[] proofs;
+  private final int[] disproofs;
+  /** The number of nodes expanded while searching the subtree of the entry. */
+  private final long[] efforts;
+
+  private long expansions;
+
+  /**
+   * Creates a new search.
+   *
+   * @param game the game whose positions are to be solved
+   * @param tableSize the number of entries in the transposition table
+   * @throws IllegalArgumentException if {@code tableSize} is less than {@value #BUCKET_SIZE}
+   */
+  public DepthFirstProofNumberSearch(Game<P, M, T> game, int tableSize) {
+    if (tableSize < BUCKET_SIZE) {
+      throw new IllegalArgumentException("Invalid table size: " + tableSize);
+    }
+    categoryFunction = game.getCategoryFunction();
+    keyFunction = InvariantKeyFunction.forGame(game);
+    positions = new Object[tableSize];
+    categories = new long[tableSize];
+    keys = new int[tableSize];
+    orNodes = new boolean[tableSize];
+    proofs = new int[tableSize];
+    disproofs = new int[tableSize];
+    efforts = new long[tableSize];
+  }
+
+  /**
+   * Returns the number of nodes expanded by this instance so far. Nodes whose table entries were
+   * replaced may be expanded and counted multiple times.
+   *
+   * @return the number of expanded nodes
+   */
+  public long getExpansions() {
+    return expansions;
+  }
+
+  /**
+   * Returns the number of used entries of the transposition table.
+   *
+   * @return the number of table entries holding a position
+   */
+  public int getTableUsage() {
+    int usage = 0;
+    for (Object position : positions) {
+      if (position != null) {
+        usage++;
+      }
+    }
+    return usage;
+  }
+
+  /**
+   * Solves a position.
+   *
+   * @param position the position to solve
+   * @return the result of the position
+   */
+  public GraphResult solve(P position) {
+    GameStatus status = position.getStatus();
+    if (status.isFinal()) {
+      return GraphResult.from(status);
+    }
+    Player player = status.getCurrentPlayer();
+    if (prove(position, player)) {
+      return GraphResult.getWin(player);
+    }
+    if (prove(position, player.getOther())) {
+      return GraphResult.getWin(player.getOther());
+    }
+    return GraphResult.DRAW;
+  }
+
+  /**
+   * Proves or disproves that a player wins from a position.
+   *
+   * @param position the position to search
+   * @param attacker the player whose win is to be proved
+   * @return {@code true} if {@code attacker} wins, {@code false} if {@code attacker} cannot win
+   */
+  public boolean prove(P position, Player attacker) {
+    GameStatus status = position.getStatus();
+    if (status.isFinal()) {
+      return GraphResult.from(status).willWin(attacker);
+    }
+    boolean or = status.getCurrentPlayer() == attacker;
+    long category = categoryFunction.category(position);
+    int key = keyFunction.key(position);
+    long numbers;
+    do {
+      numbers = search(position, category, key, or, INFINITY, INFINITY);
+    } while (proof(numbers) != 0 && disproof(numbers) != 0);
+    return proof(numbers) == 0;
+  }
+
+  /**
+   * Searches a non-final position until it is solved or one of its numbers reaches its threshold,
+   * and stores its numbers in the table.
+   *
+   * @return the proof and disproof numbers of the position, packed by {@link #pack}
+   */
+  private long search(
+      P position, long category, int key, boolean or, int proofThreshold, int disproofThreshold) {
+    int index = find(position, category, key, or);
+    if (index != -1
+        && (proofs[index] >= proofThreshold || disproofs[index] >= disproofThreshold)) {
+      return pack(proofs[index], disproofs[index]);
+    }
+    long effort = index == -1 ? 0 : efforts[index];
+    long expansionsBefore = expansions;
+    expansions++;
+
+    Player mover = position.getStatus().getCurrentPlayer();
+    int childCount = position.getMoveCount();
+    @SuppressWarnings("unchecked")
+    P[] children = (P[]) new Position<?, ?, ?>[childCount];
+    long[] childCategories = new long[childCount];
+    int[] childKeys = new int[childCount];
+    boolean[] childOrs = new boolean[childCount];
+    int[] childProofs = new int[childCount];
+    int[] childDisproofs = new int[childCount];
+    for (int i = 0; i < childCount; i++) {
+      P child = position.moveByIndex(i);
+      children[i] = child;
+      GameStatus status = child.getStatus();
+      if (status.isFinal()) {
+        boolean attackerWins = GraphResult.from(status).willWin(or ? mover : mover.getOther());
+        childProofs[i] = attackerWins ? 0 : INFINITY;
+        childDisproofs[i] = attackerWins ? INFINITY : 0;
+      } else {
+        childCategories[i] = categoryFunction.category(child);
+        childKeys[i] = keyFunction.key(child);
+        childOrs[i] = (status.getCurrentPlayer() == mover) == or;
+        childProofs[i] = 1;
+        childDisproofs[i] = 1;
+      }
+    }
+
+    int proof;
+    int disproof;
+    while (true) {
+      /*
+       * Refresh the numbers of the unsolved children from the table. If a child's entry has been
+       * replaced, the numbers returned by its last search are used instead.
+       */
+      int best = -1;
+      int bestValue = INFINITY;
+      int secondValue = INFINITY;
+      int min = INFINITY;
+      long sum = 0;
+      for (int i = 0; i < childCount; i++) {
+        if (childProofs[i] != 0 && childDisproofs[i] != 0) {
+          int childIndex = find(children[i], childCategories[i], childKeys[i], childOrs[i]);
+          if (childIndex != -1) {
+            childProofs[i] = proofs[childIndex];
+            childDisproofs[i] = disproofs[childIndex];
+          }
+        }
+        int selectValue = or ? childProofs[i] : childDisproofs[i];
+        sum += or ? childDisproofs[i] : childProofs[i];
+        min = Math.min(min, selectValue);
+        if (best == -1 || selectValue < bestValue) {
+          secondValue = bestValue;
+          bestValue = selectValue;
+          best = i;
+        } else if (selectValue < secondValue) {
+          secondValue = selectValue;
+        }
+      }
+      int saturatedSum = (int) Math.min(sum, INFINITY);
+      proof = or ? min : saturatedSum;
+      disproof = or ? saturatedSum : min;
+      if (proof >= proofThreshold || disproof >= disproofThreshold || proof == 0 || disproof == 0) {
+        break;
+      }
+
+      /*
+       * Search the most-proving child until it becomes worse than the second best child, or the
+       * numbers of this node reach their thresholds.
+       */
+      int childProofThreshold;
+      int childDisproofThreshold;
+      if (or) {
+        childProofThreshold = (int) Math.min(proofThreshold, (long) secondValue + 1);
+        childDisproofThreshold = (int) Math.min(
+            INFINITY, (long) disproofThreshold - disproof + childDisproofs[best]);
+      } else {
+        childProofThreshold = (int) Math.min(
+            INFINITY, (long) proofThreshold - proof + childProofs[best]);
+        childDisproofThreshold = (int) Math.min(disproofThreshold, (long) secondValue + 1);
+      }
+      long childNumbers = search(children[best], childCategories[best], childKeys[best],
+          childOrs[best], childProofThreshold, childDisproofThreshold);
+      childProofs[best] = proof(childNumbers);
+      childDisproofs[best] = disproof(childNumbers);
+    }
+
+    store(position, category, key, or, proof, disproof, effort + expansions - expansionsBefore);
+    return pack(proof, disproof);
+  }
+
+  private int bucketStart(long category, int key, boolean or) {
+    long hash = (category * 31 + key) * 2 + (or ? 1 : 0);
+    hash *= 0x9E3779B97F4A7C15L;
+    return (int) ((hash >>> 32) % positions.length);
+  }
+
+  /**
+   * Finds the table entry of a position.
+   *
+   * @return the index of the entry, or -1 if the position is not in the table
+   */
+  private int find(P position, long category, int key, boolean or) {
+    int start = bucketStart(category, key, or);
+    for (int i = 0; i < BUCKET_SIZE; i++) {
+      int index = (start + i) % positions.length;
+      if (matches(index, position, category, key, or)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean matches(int index, P position, long category, int key, boolean or) {
+    return positions[index] != null
+        && categories[index] == category
+        && keys[index] == key
+        && orNodes[index] == or
+        && ((P) positions[index]).getTransformationTo(position) != null;
+  }
+
+  /**
+   * Stores the numbers of a position in the table. If the position is not in the table yet, the
+   * entry of its bucket with the least search effort is replaced.
+   */
+  private void store(
+      P position, long category, int key, boolean or, int proof, int disproof, long effort) {
+    int start = bucketStart(category, key, or);
+    int target = -1;
+    for (int i = 0; i < BUCKET_SIZE; i++) {
+      int index = (start + i) % positions.length;
+      if (matches(index, position, category, key, or)) {
+        target = index;
+        break;
+      }
+      if (target == -1 || positions[index] == null
+          || (positions[target] != null && efforts[index] < efforts[target])) {
+        target = index;
+      }
+    }
+    positions[target] = position;
+    categories[target] = category;
+    keys[target] = key;
+    orNodes[target] = or;
+    proofs[target] = proof;
+    disproofs[target] = disproof;
+    efforts[target] = effort;
+  }
+
+  private static long pack(int proof, int disproof) {
+    return (long) proof << 32 | disproof & 0xFFFFFFFFL;
+  }
+
+  private static int proof(long numbers) {
+    return (int) (numbers >>> 32);
+  }
+
+  private static int disproof(long numbers) {
+    return (int) numbers;
+  }
+}
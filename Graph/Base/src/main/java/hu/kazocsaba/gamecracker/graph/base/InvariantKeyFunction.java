@@ -0,0 +1,127 @@
+package hu.kazocsaba.gamecracker.graph.base;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Computes keys of positions that do not change when a transformation is applied to the position.
+ * If {@code p1.getTransformationTo(p2) != null}, then {@code key(p1) == key(p2)}; for positions
+ * not related by a transformation, the keys differ with high probability. Graph implementations can
+ * use these keys to look up the node of a position without comparing the position to each member
+ * of its category.
+ *
+ * <p>If the positions of the game support {@link Position#getCanonicalForm() canonical forms}, the
+ * key of a position is derived from its {@link Position#getInvariantKey() invariant key}, which
+ * games can maintain incrementally, and which defaults to the hash code of the canonical form.
+ * Otherwise the key is the smallest hash code among all of its transformed images. This requires
+ * that the transformations of the game can be enumerated, which is possible if the transformation
+ * type is an enumeration (as recommended by {@link Transformation}). For other transformation
+ * types, every position gets the same key.
+ *
+ * <p>Instances of this class are immutable, therefore they are thread-safe.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+public final class InvariantKeyFunction<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  /** Whether the keys are derived from the invariant keys of the positions. */
+  private final boolean canonical;
+  /** The non-identity transformations of the game, or {@code null} if they are not known. */
+  private final T[] transformations;
+
+  private InvariantKeyFunction(boolean canonical, T[] transformations) {
+    this.canonical = canonical;
+    this.transformations = transformations;
+  }
+
+  /**
+   * Creates a key function for the positions of a game.
+   *
+   * @param game the game
+   * @return a key function for the game's positions
+   */
+  public static <
+      P extends Position<P, M, T>,
+      M extends Move<M, T>,
+      T extends Transformation<T>> InvariantKeyFunction<P, M, T> forGame(Game<P, M, T> game) {
+    if (game.getInitialPosition().getCanonicalTransformation() != null) {
+      return new InvariantKeyFunction<>(true, null);
+    }
+    T identity = Objects.requireNonNull(game.getIdentityTransformation());
+    T[] allTransformations = enumerate(identity);
+    if (allTransformations == null) {
+      return new InvariantKeyFunction<>(false, null);
+    }
+    // the identity image is the position itself, no need to compute it
+    T[] transformations = Arrays.copyOf(allTransformations, allTransformations.length - 1);
+    int count = 0;
+    for (T t : allTransformations) {
+      if (!t.isIdentity()) {
+        transformations[count++] = t;
+      }
+    }
+    return new InvariantKeyFunction<>(false, transformations);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Transformation<T>> T[] enumerate(T identity) {
+    if (!(identity instanceof Enum)) {
+      return null;
+    }
+    return (T[]) ((Enum<?>) identity).getDeclaringClass().getEnumConstants();
+  }
+
+  /**
+   * Returns whether this function produces distinct keys for positions. If this method returns
+   * {@code false}, then the positions have no canonical forms and the transformations of the game
+   * cannot be enumerated, so {@link #key} returns the same value for all positions.
+   *
+   * @return {@code true} if the keys of unrelated positions are likely to be different
+   */
+  public boolean isDiscriminating() {
+    return canonical || transformations != null;
+  }
+
+  /**
+   * Computes the key of a position.
+   *
+   * @param position a position
+   * @return the key of the position
+   */
+  public int key(P position) {
+    if (canonical) {
+      return Long.hashCode(position.getInvariantKey());
+    }
+    if (transformations == null) {
+      return 0;
+    }
+    int key = position.hashCode();
+    for (T t : transformations) {
+      key = Math.min(key, position.transform(t).hashCode());
+    }
+    return key;
+  }
+
+  /**
+   * Computes a hash of a position from its category and its key. Graphs storing the positions of
+   * all categories in a single hash table use this as the hash of a position, so equivalent
+   * positions have the same hash, and positions of different categories are spread over the table.
+   *
+   * @param category the category of the position
+   * @param position a position
+   * @return the hash of the category and the key of the position
+   */
+  public int hash(long category, P position) {
+    long h = (category ^ key(position)) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,30 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A record store in direct byte buffers. The records live in native memory, outside the Java heap,
+ * so they are neither scanned nor moved by the garbage collector. The chunks are freed when the
+ * store becomes unreachable.
+ *
+ * @author Kazó Csaba
+ */
+final class DirectRecordStore extends RecordStore {
+
+  /** The upper limit to the size of a chunk. */
+  private static final int MAX_CHUNK_SIZE = 4 << 20;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param recordSize the size of a record in bytes
+   */
+  DirectRecordStore(int recordSize) {
+    super(recordSize, MAX_CHUNK_SIZE);
+  }
+
+  @Override
+  ByteBuffer allocateChunk(long start, int size) {
+    return ByteBuffer.allocateDirect(size);
+  }
+}
@@ -0,0 +1,117 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.InconsistencyError;
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A Graph implementation storing its nodes in memory-mapped files. The size of the graph is only
+ * limited by the available disk space; the operating system keeps the recently used parts of the
+ * files in memory.
+ *
+ * <p>The graph is stored in a directory, in four files: {@code nodes.dat} contains the node
+ * records, {@code slots.dat} the child slots, {@code edges.dat} the parent edges, and
+ * {@code index.dat} the hash buckets of the normal nodes. See {@link RecordGraph} for the
+ * description of the records.
+ *
+ * @author Kazó Csaba
+ */
+public class FileGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends RecordGraph<P, M, T> {
+
+  private FileGraph(Game<P, M, T> game,
+      RecordStore nodes, RecordStore slots, RecordStore edges, RecordStore buckets) {
+    super(game, nodes, slots, edges, buckets);
+  }
+
+  private static <
+      P extends Position<P, M, T>,
+      M extends Move<M, T>,
+      T extends Transformation<T>> FileGraph<P, M, T> load(Game<P, M, T> game, Path directory) {
+    RecordFile nodes = null;
+    RecordFile slots = null;
+    RecordFile edges = null;
+    RecordFile buckets = null;
+    try {
+      nodes = new RecordFile(directory.resolve("nodes.dat"), getNodeRecordSize(game));
+      slots = new RecordFile(directory.resolve("slots.dat"), SLOT_SIZE);
+      edges = new RecordFile(directory.resolve("edges.dat"), EDGE_SIZE);
+      buckets = new RecordFile(directory.resolve("index.dat"), BUCKET_SIZE);
+      return new FileGraph<>(game, nodes, slots, edges, buckets);
+    } catch (RuntimeException | Error e) {
+      for (RecordFile file : new RecordFile[] {nodes, slots, edges, buckets}) {
+        if (file != null) {
+          try {
+            file.close();
+          } catch (IOException closeException) {
+            e.addSuppressed(closeException);
+          }
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a new, empty graph in a directory. The graph initially contains only the root node.
+   *
+   * @param game the game whose positions the graph will contain
+   * @param directory the directory to store the graph files in; created if it does not exist
+   * @return the new graph
+   * @throws IllegalArgumentException if the directory already contains a graph
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  public static <
+      P extends Position<P, M, T>,
+      M extends Move<M, T>,
+      T extends Transformation<T>> FileGraph<P, M, T> create(Game<P, M, T> game, Path directory) {
+    Path nodeFile = directory.resolve("nodes.dat");
+    try {
+      Files.createDirectories(directory);
+      if (Files.exists(nodeFile) && Files.size(nodeFile) > 0) {
+        throw new IllegalArgumentException("A graph already exists in " + directory);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return load(game, directory);
+  }
+
+  /**
+   * Opens a graph previously created by {@link #create(Game, Path)}.
+   *
+   * @param game the game of the graph
+   * @param directory the directory containing the graph files
+   * @return the graph stored in the directory
+   * @throws IllegalArgumentException if the directory does not contain a graph of the game
+   * @throws UncheckedIOException if an I/O error occurs
+   * @throws InconsistencyError if the graph files are corrupt
+   */
+  public static <
+      P extends Position<P, M, T>,
+      M extends Move<M, T>,
+      T extends Transformation<T>> FileGraph<P, M, T> open(Game<P, M, T> game, Path directory) {
+    if (!Files.exists(directory.resolve("nodes.dat"))) {
+      throw new IllegalArgumentException("No graph found in " + directory);
+    }
+    return load(game, directory);
+  }
+
+  /**
+   * Writes all changes to the storage device.
+   */
+  public void flush() {
+    nodes.flush();
+    slots.flush();
+    edges.flush();
+    buckets.flush();
+  }
+}
@@ -0,0 +1,287 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.CategoryFunction;
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Solves a game layer by layer, keeping the layers in files. The solver is meant for games where
+ * every move increases the {@link CategoryFunction category} of the position by exactly one, like
+ * Reversi, where the category is the number of tokens on the board, and every move adds a token.
+ * The positions of the same category then form a layer, and the moves only lead from a layer to
+ * the next one.
+ *
+ * <p>The game is solved in two passes over the layers:
+ * <ol>
+ * <li>The forward pass enumerates the layers with a {@link StateSpaceEnumerator}, starting from the
+ * layer of the initial position. The successors of the positions of a layer form the next layer,
+ * which is written to a file as a sorted list of distinct records. A record is the serialized form
+ * of the canonical form of a position or, if the game does not support canonical forms, of the
+ * transformed image of the position with the smallest bytes. Equivalent positions therefore share a
+ * single record.</li>
+ * <li>The backward pass solves the layers from the last one to the first one. The results of a
+ * layer are computed from the results of the next layer, looking up the successors by binary
+ * search, and written to a file parallel to the records of the layer.</li>
+ * </ol>
+ *
+ * <p>The forward pass sorts the layers externally, so its memory use does not depend on their
+ * size. In the backward pass, only two layers are used at any time: the one being solved, which
+ * is streamed from its file, and the next one, which is kept in memory. The size of the whole game
+ * is thus only limited by the disk space, but a single layer must fit in memory. After solving, the
+ * files form a database of the results of all reachable positions, which can be queried with
+ * {@link #getResult(Position)}.
+ *
+ * <p>If the game does not support canonical forms, its transformation type must be an enumeration.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+public class LayeredSolver<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  private static final GraphResult[] RESULTS = GraphResult.values();
+
+  private final Game<P, M, T> game;
+  private final Path directory;
+  private final RecordCodec<P, M, T> codec;
+  private final CategoryFunction<P> categoryFunction;
+  private final int recordSize;
+  private final long firstCategory;
+
+  /** The number of records in each layer, known after the forward pass. */
+  private final List<Integer> layerSizes = new ArrayList<>();
+  private GraphResult result;
+
+  /**
+   * Creates a new solver.
+   *
+   * @param game the game to solve
+   * @param directory the directory to store the layer files in; created if it does not exist
+   * @throws IllegalArgumentException if the game does not support canonical forms, and its
+   *     transformation type is not an enumeration
+   */
+  public LayeredSolver(Game<P, M, T> game, Path directory) {
+    this.game = Objects.requireNonNull(game);
+    this.directory = Objects.requireNonNull(directory);
+    codec = new RecordCodec<>(game);
+    categoryFunction = game.getCategoryFunction();
+    recordSize = codec.getRecordSize();
+    firstCategory = categoryFunction.category(game.getInitialPosition());
+  }
+
+  /**
+   * Solves the game, if it has not been solved yet, and returns the result of its initial position.
+   *
+   * @return the result of the initial position
+   * @throws IllegalArgumentException if a move of the game does not increase the category of the
+   *     position by one
+   * @throws UncheckedIOException if an I/O error occurs
+   * @throws IllegalStateException if a layer does not fit in memory
+   */
+  public GraphResult solve() {
+    if (result == null) {
+      try {
+        enumerate();
+        for (int layer = layerSizes.size() - 1; layer >= 0; layer--) {
+          solveLayer(layer);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      result = lookup(game.getInitialPosition());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of layers. The layers are indexed from 0, the layer of the initial position.
+   *
+   * @return the number of layers
+   * @throws IllegalStateException if the game has not been solved yet
+   */
+  public int getLayerCount() {
+    checkSolved();
+    return layerSizes.size();
+  }
+
+  /**
+   * Returns the number of distinct positions in a layer. Positions related by a transformation are
+   * counted only once.
+   *
+   * @param layer the index of the layer
+   * @return the number of positions in the layer
+   * @throws IllegalStateException if the game has not been solved yet
+   * @throws IndexOutOfBoundsException if the layer index is invalid
+   */
+  public int getLayerSize(int layer) {
+    checkSolved();
+    return layerSizes.get(layer);
+  }
+
+  /**
+   * Looks up the result of a position in the solved layers.
+   *
+   * @param position a position reachable from the initial position
+   * @return the result of the position
+   * @throws IllegalStateException if the game has not been solved yet
+   * @throws IllegalArgumentException if the position is not reachable from the initial position
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  public GraphResult getResult(P position) {
+    checkSolved();
+    return lookup(position);
+  }
+
+  private GraphResult lookup(P position) {
+    long layer = categoryFunction.category(position) - firstCategory;
+    if (layer < 0 || layer >= layerSizes.size()) {
+      throw new IllegalArgumentException("Position is not reachable: " + position);
+    }
+    byte[] record = new byte[recordSize];
+    boolean switching = codec.canonicalize(position, record);
+    byte[] candidate = new byte[recordSize];
+    try (FileChannel records = FileChannel.open(recordFile((int) layer), StandardOpenOption.READ);
+        FileChannel results = FileChannel.open(resultFile((int) layer), StandardOpenOption.READ)) {
+      int low = 0;
+      int high = layerSizes.get((int) layer) - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        readFully(records, candidate, (long) middle * recordSize);
+        int c = RecordArray.compare(candidate, 0, record, 0, recordSize);
+        if (c < 0) {
+          low = middle + 1;
+        } else if (c > 0) {
+          high = middle - 1;
+        } else {
+          byte[] resultByte = new byte[1];
+          readFully(results, resultByte, middle);
+          GraphResult stored = RESULTS[resultByte[0]];
+          return switching ? stored.getOther() : stored;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    throw new IllegalArgumentException("Position is not reachable: " + position);
+  }
+
+  private void checkSolved() {
+    if (result == null) {
+      throw new IllegalStateException("The game has not been solved yet");
+    }
+  }
+
+  private Path recordFile(int layer) {
+    return StateSpaceEnumerator.getLayerFile(directory, layer);
+  }
+
+  private Path resultFile(int layer) {
+    return directory.resolve(String.format("layer%03d.res", layer));
+  }
+
+  private static void readFully(FileChannel channel, byte[] target, long position)
+      throws IOException {
+    ByteBuffer targetBuffer = ByteBuffer.wrap(target);
+    while (targetBuffer.hasRemaining()) {
+      if (channel.read(targetBuffer, position + targetBuffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+  }
+
+  private static DataInputStream openInput(Path path) throws IOException {
+    return new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+  }
+
+  private static OutputStream openOutput(Path path) throws IOException {
+    return new BufferedOutputStream(Files.newOutputStream(path));
+  }
+
+  /**
+   * The forward pass: writes the records of each layer to its file.
+   */
+  private void enumerate() {
+    StateSpaceEnumerator<P, M, T> enumerator = new StateSpaceEnumerator<>(
+        game, directory, StateSpaceEnumerator.DEFAULT_BUFFER_SIZE, true);
+    enumerator.enumerate();
+    layerSizes.clear();
+    for (int layer = 0; layer < enumerator.getLayerCount(); layer++) {
+      long size = enumerator.getLayerSize(layer);
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Layer " + layer + " is too large: " + size);
+      }
+      layerSizes.add((int) size);
+    }
+  }
+
+  /**
+   * Computes the results of a layer. The results of the next layer must already be available.
+   */
+  private void solveLayer(int index) throws IOException {
+    RecordArray next = null;
+    byte[] nextResults = null;
+    if (index + 1 < layerSizes.size()) {
+      int nextSize = layerSizes.get(index + 1);
+      try (DataInputStream in = openInput(recordFile(index + 1))) {
+        next = RecordArray.read(in, recordSize, nextSize);
+      }
+      nextResults = new byte[nextSize];
+      try (DataInputStream in = openInput(resultFile(index + 1))) {
+        in.readFully(nextResults);
+      }
+    }
+
+    byte[] record = new byte[recordSize];
+    try (DataInputStream in = openInput(recordFile(index));
+        OutputStream out = openOutput(resultFile(index))) {
+      for (int i = layerSizes.get(index); i > 0; i--) {
+        in.readFully(record);
+        P position = codec.read(record);
+        GameStatus status = position.getStatus();
+        GraphResult positionResult;
+        if (status.isFinal()) {
+          positionResult = GraphResult.from(status);
+        } else {
+          GraphResultComputer resultComputer = GraphResultComputer.start(status.getCurrentPlayer());
+          for (int m = 0, moveCount = position.getMoveCount(); m < moveCount; m++) {
+            boolean switching = codec.canonicalize(position.moveByIndex(m), record);
+            int nextIndex = next == null ? -1 : next.indexOf(record);
+            if (nextIndex == -1) {
+              throw new AssertionError("Successor not found in the next layer");
+            }
+            GraphResult nextResult = RESULTS[nextResults[nextIndex]];
+            resultComputer =
+                resultComputer.withMove(switching ? nextResult.getOther() : nextResult);
+          }
+          positionResult = resultComputer.get();
+          if (!positionResult.isKnown()) {
+            throw new AssertionError("Unknown result with all successors solved");
+          }
+        }
+        out.write(positionResult.ordinal());
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+/**
+ * An in-memory Graph implementation keeping its nodes in native memory, outside the Java heap. A
+ * node takes a fixed-size record, 8 bytes for each of its children and 16 bytes for each of its
+ * parents, instead of a graph of Java objects. The garbage collector never has to trace the nodes,
+ * so collection pauses do not grow with the size of the graph.
+ *
+ * <p>The native memory is allocated in chunks of direct byte buffers, and it is released when the
+ * graph becomes unreachable. The amount of direct memory available to the JVM can be set by the
+ * {@code -XX:MaxDirectMemorySize} option.
+ *
+ * @author Kazó Csaba
+ */
+public class OffHeapGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends RecordGraph<P, M, T> {
+
+  /**
+   * Creates a new graph containing only the root node.
+   *
+   * @param game the game whose positions the graph will contain
+   */
+  public OffHeapGraph(Game<P, M, T> game) {
+    super(game,
+        new DirectRecordStore(getNodeRecordSize(game)),
+        new DirectRecordStore(SLOT_SIZE),
+        new DirectRecordStore(EDGE_SIZE),
+        new DirectRecordStore(BUCKET_SIZE));
+  }
+}
@@ -0,0 +1,245 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable array of fixed-size records stored back to back in a single byte array. Records are
+ * ordered by comparing their bytes as unsigned values, lexicographically.
+ *
+ * @author Kazó Csaba
+ */
+final class RecordArray {
+
+  /** The largest byte array size that the VM can allocate safely. */
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+  /** Ranges shorter than this are sorted by insertion sort. */
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private final int recordSize;
+  private byte[] data;
+  private int size;
+  /* Temporary records used by the sort. */
+  private final byte[] pivot;
+  private final byte[] temp;
+
+  /**
+   * Creates an empty array.
+   *
+   * @param recordSize the size of a record in bytes
+   */
+  RecordArray(int recordSize) {
+    this(recordSize, 16);
+  }
+
+  private RecordArray(int recordSize, int capacity) {
+    if (recordSize <= 0) {
+      throw new IllegalArgumentException("Invalid record size: " + recordSize);
+    }
+    this.recordSize = recordSize;
+    data = new byte[capacity * recordSize];
+    pivot = new byte[recordSize];
+    temp = new byte[recordSize];
+  }
+
+  /**
+   * Reads an array of records.
+   *
+   * @param in the input to read the records from
+   * @param recordSize the size of a record in bytes
+   * @param count the number of records to read
+   * @return the array of the records read
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if the records do not fit into an array
+   */
+  static RecordArray read(DataInput in, int recordSize, int count) throws IOException {
+    if ((long) count * recordSize > MAX_ARRAY_SIZE) {
+      throw new IllegalStateException("Too many records: " + count);
+    }
+    RecordArray array = new RecordArray(recordSize, count);
+    in.readFully(array.data, 0, count * recordSize);
+    array.size = count;
+    return array;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes occupied by the records.
+   *
+   * @return the total size of the records in bytes
+   */
+  long getByteSize() {
+    return (long) size * recordSize;
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param record the array holding the record in its first {@code recordSize} bytes
+   * @throws IllegalStateException if the array cannot grow any further
+   */
+  void add(byte[] record) {
+    int offset = size * recordSize;
+    if (offset + recordSize > data.length) {
+      long capacity = Math.min(2L * data.length, MAX_ARRAY_SIZE / recordSize * recordSize);
+      if (capacity < offset + recordSize) {
+        throw new IllegalStateException("Too many records");
+      }
+      data = Arrays.copyOf(data, (int) capacity);
+    }
+    System.arraycopy(record, 0, data, offset, recordSize);
+    size++;
+  }
+
+  /**
+   * Copies a record into an array.
+   *
+   * @param index the index of the record
+   * @param record the array to receive the record in its first {@code recordSize} bytes
+   */
+  void get(int index, byte[] record) {
+    System.arraycopy(data, index * recordSize, record, 0, recordSize);
+  }
+
+  /**
+   * Removes all records, keeping the allocated storage.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Writes the records to an output stream.
+   *
+   * @param out the stream to write to
+   * @throws IOException if an I/O error occurs
+   */
+  void write(OutputStream out) throws IOException {
+    out.write(data, 0, size * recordSize);
+  }
+
+  /**
+   * Sorts the records and removes the duplicates.
+   */
+  void sortDistinct() {
+    if (size > 1) {
+      sort(0, size - 1);
+    }
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (distinct == 0
+          || compare(data, i * recordSize, data, (distinct - 1) * recordSize, recordSize) != 0) {
+        if (distinct != i) {
+          System.arraycopy(data, i * recordSize, data, distinct * recordSize, recordSize);
+        }
+        distinct++;
+      }
+    }
+    size = distinct;
+  }
+
+  /**
+   * Finds a record in the sorted array.
+   *
+   * @param record the array holding the record in its first {@code recordSize} bytes
+   * @return the index of the record, or -1 if it is not in the array
+   */
+  int indexOf(byte[] record) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int c = compare(data, middle * recordSize, record, 0, recordSize);
+      if (c < 0) {
+        low = middle + 1;
+      } else if (c > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compares two records by their bytes as unsigned values.
+   */
+  static int compare(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+    for (int i = 0; i < length; i++) {
+      int c = (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private int compareToPivot(int index) {
+    return compare(data, index * recordSize, pivot, 0, recordSize);
+  }
+
+  private void swap(int i, int j) {
+    System.arraycopy(data, i * recordSize, temp, 0, recordSize);
+    System.arraycopy(data, j * recordSize, data, i * recordSize, recordSize);
+    System.arraycopy(temp, 0, data, j * recordSize, recordSize);
+  }
+
+  private void sortTwo(int i, int j) {
+    if (compare(data, j * recordSize, data, i * recordSize, recordSize) < 0) {
+      swap(i, j);
+    }
+  }
+
+  /**
+   * Sorts the records between two indices, inclusive, by quicksort. The recursion only descends
+   * into the smaller part, so its depth is logarithmic.
+   */
+  private void sort(int low, int high) {
+    while (high - low >= INSERTION_SORT_THRESHOLD) {
+      int middle = (low + high) >>> 1;
+      sortTwo(low, middle);
+      sortTwo(low, high);
+      sortTwo(middle, high);
+      System.arraycopy(data, middle * recordSize, pivot, 0, recordSize);
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (compareToPivot(i) < 0) {
+          i++;
+        }
+        while (compareToPivot(j) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i, j);
+          i++;
+          j--;
+        }
+      }
+      if (j - low < high - i) {
+        sort(low, j);
+        low = i;
+      } else {
+        sort(i, high);
+        high = j;
+      }
+    }
+    for (int i = low + 1; i <= high; i++) {
+      System.arraycopy(data, i * recordSize, temp, 0, recordSize);
+      int j = i - 1;
+      while (j >= low && compare(data, j * recordSize, temp, 0, recordSize) > 0) {
+        j--;
+      }
+      if (j + 1 != i) {
+        System.arraycopy(data, (j + 1) * recordSize, data, (j + 2) * recordSize,
+            (i - j - 1) * recordSize);
+        System.arraycopy(temp, 0, data, (j + 1) * recordSize, recordSize);
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.PositionSerializer;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Converts positions to and from canonical records. The canonical record of a position is the
+ * serialized form of a representative of the position, padded with zeros to the maximum serialized
+ * size. If the game supports {@link Position#getCanonicalForm() canonical forms}, the
+ * representative is the canonical form of the position. Otherwise the position is transformed so
+ * that the bytes of the record are the smallest among all the transformed images of the position.
+ * Positions related by a transformation therefore have the same canonical record.
+ *
+ * <p>If the game does not support canonical forms, its transformation type must be an enumeration.
+ * Instances are not thread-safe, as they reuse their buffers.
+ *
+ * @author Kazó Csaba
+ */
+final class RecordCodec<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  private final PositionSerializer<P> serializer;
+  /**
+   * All transformations of the game, including the identity, or {@code null} if the canonical forms
+   * of the positions are used.
+   */
+  private final T[] transformations;
+  private final int recordSize;
+
+  /** The buffer for serialization, reused for every position. */
+  private final SerializationBuffer buffer;
+
+  /**
+   * Creates a codec for the positions of a game.
+   *
+   * @param game the game
+   * @throws IllegalArgumentException if the game does not support canonical forms, and its
+   *     transformation type is not an enumeration
+   */
+  @SuppressWarnings("unchecked")
+  RecordCodec(Game<P, M, T> game) {
+    if (game.getInitialPosition().getCanonicalTransformation() != null) {
+      transformations = null;
+    } else {
+      T identity = game.getIdentityTransformation();
+      if (!(identity instanceof Enum)) {
+        throw new IllegalArgumentException("The transformations of the game are not enumerable");
+      }
+      transformations = (T[]) ((Enum<?>) identity).getDeclaringClass().getEnumConstants();
+    }
+    serializer = game.getPositionSerializer();
+    recordSize = serializer.getPositionMaxSerializedSize();
+    buffer = new SerializationBuffer(recordSize);
+  }
+
+  int getRecordSize() {
+    return recordSize;
+  }
+
+  /**
+   * Computes the canonical record of a position.
+   *
+   * @param position the position
+   * @param record the array to receive the record
+   * @return whether the transformation producing the canonical record switches the players
+   */
+  boolean canonicalize(P position, byte[] record) {
+    if (transformations == null) {
+      T t = position.getCanonicalTransformation();
+      serialize(t.isIdentity() ? position : position.transform(t));
+      System.arraycopy(buffer.getBytes(), 0, record, 0, recordSize);
+      return t.isPlayerSwitching();
+    }
+    boolean switching = false;
+    boolean first = true;
+    for (T t : transformations) {
+      serialize(t.isIdentity() ? position : position.transform(t));
+      if (first || RecordArray.compare(buffer.getBytes(), 0, record, 0, recordSize) < 0) {
+        System.arraycopy(buffer.getBytes(), 0, record, 0, recordSize);
+        switching = t.isPlayerSwitching();
+        first = false;
+      }
+    }
+    return switching;
+  }
+
+  /**
+   * Reads the position stored in a record.
+   *
+   * @param record the record
+   * @return the position
+   */
+  P read(byte[] record) {
+    System.arraycopy(record, 0, buffer.getBytes(), 0, recordSize);
+    try {
+      return serializer.readPosition(buffer.startReading());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void serialize(P position) {
+    try {
+      serializer.writePosition(position, buffer.startWriting());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Arrays.fill(buffer.getBytes(), buffer.getLength(), recordSize, (byte) 0);
+  }
+}
@@ -0,0 +1,63 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A record store in a file, accessed through memory mapping. A single mapping is limited to 2 GB,
+ * so the file is mapped in chunks of at most 64 MB.
+ *
+ * @author Kazó Csaba
+ */
+final class RecordFile extends RecordStore {
+
+  /** The upper limit to the size of a mapped chunk. */
+  private static final int MAX_CHUNK_SIZE = 64 << 20;
+
+  private final FileChannel channel;
+
+  /**
+   * Opens a record file, creating it if it does not exist.
+   *
+   * @param path the path of the file
+   * @param recordSize the size of a record in bytes
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  RecordFile(Path path, int recordSize) {
+    super(recordSize, MAX_CHUNK_SIZE);
+    try {
+      channel = FileChannel.open(path,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long existingRecords = channel.size() / recordSize;
+      if (existingRecords > 0) {
+        ensureCapacity(existingRecords);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  ByteBuffer allocateChunk(long start, int size) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+  }
+
+  @Override
+  void flush() {
+    for (ByteBuffer chunk : getChunks()) {
+      ((MappedByteBuffer) chunk).force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    super.close();
+    channel.close();
+  }
+}
@@ -0,0 +1,558 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.InconsistencyError;
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.PositionSerializer;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.TransformationSerializer;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.base.DefaultGraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A Graph implementation storing its nodes as fixed-size records outside the Java heap. Node state
+ * is addressed by record index; only small view objects are created when a node is requested, so
+ * the graph puts almost no load on the garbage collector. The subclasses decide where the records
+ * live: {@link FileGraph} keeps them in memory-mapped files, {@link OffHeapGraph} in native memory.
+ *
+ * <p>The graph consists of four record stores:
+ * <ul>
+ * <li>The node store contains the nodes. The first record is a header, the node ids are the indices
+ * of the records. A normal node record contains the serialized position; a transformation node
+ * record contains the serialized transformation and the id of the linked node. The record size is
+ * derived from {@link PositionSerializer#getPositionMaxSerializedSize()} and
+ * {@link TransformationSerializer#getTransformationSerializedSize()}.</li>
+ * <li>The slot store contains the children of the normal nodes. Each normal node owns a contiguous
+ * range of slots, one for each valid move, holding the id of the child node (or 0 if the child has
+ * not been added yet).</li>
+ * <li>The edge store contains the parent lists of the nodes as linked lists of edge records.</li>
+ * <li>The bucket store is a hash table of normal nodes, keyed by the category and the
+ * {@link InvariantKeyFunction invariant key} of their positions. The nodes in a hash bucket are
+ * chained through their records.</li>
+ * </ul>
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Kazó Csaba
+ */
+public abstract class RecordGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends Graph<P, M, T> implements Closeable {
+
+  private static final long MAGIC = 0x4743_4E4F_4445_5332L;
+
+  /* Header fields, stored in record 0 of the node store. */
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_RECORD_SIZE = 8;
+  private static final int HEADER_MAX_MOVES = 12;
+  private static final int HEADER_NODE_COUNT = 16;
+  private static final int HEADER_EDGE_COUNT = 24;
+  private static final int HEADER_BUCKET_COUNT = 32;
+  private static final int HEADER_NORMAL_COUNT = 40;
+  private static final int HEADER_SLOT_COUNT = 48;
+  private static final int HEADER_SIZE = 56;
+
+  /* Node fields. */
+  /** The flag bits in the lowest byte, the number of children above. */
+  private static final int FLAGS = 0;
+  /** The hash of the category and the invariant key of the position. */
+  private static final int HASH = 4;
+  private static final int FIRST_PARENT = 8;
+  /** The next node in the hash bucket for normal nodes, the linked node for transformation nodes. */
+  private static final int LINK = 16;
+  private static final int FIRST_SLOT = 24;
+  private static final int DATA = 32;
+
+  /* Flag bits. The lowest three bits contain the ordinal of the GraphResult. */
+  private static final int RESULT_MASK = 0x07;
+  private static final int TRANSFORMATION_FLAG = 0x08;
+  private static final int QUEUED_FLAG = 0x10;
+  private static final int BLACK_MOVES_FLAG = 0x20;
+  private static final int CHILD_COUNT_SHIFT = 8;
+
+  /* Edge fields. Edge 0 is unused, so that 0 can mark the end of a list. */
+  private static final int EDGE_PARENT = 0;
+  private static final int EDGE_NEXT = 8;
+  static final int EDGE_SIZE = 16;
+  static final int SLOT_SIZE = 8;
+  static final int BUCKET_SIZE = 8;
+
+  private static final long ROOT = 1;
+  private static final long INITIAL_BUCKET_COUNT = 1024;
+  private static final GraphResult[] RESULTS = GraphResult.values();
+
+  private final Game<P, M, T> game;
+  private final PositionSerializer<P> positionSerializer;
+  private final TransformationSerializer<T> transformationSerializer;
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+
+  final RecordStore nodes;
+  final RecordStore slots;
+  final RecordStore edges;
+  final RecordStore buckets;
+
+  private long nodeCount;
+  private long slotCount;
+  private long edgeCount;
+  private long bucketCount;
+  private long normalCount;
+
+  /** The buffer for serialization, reused for every position and transformation. */
+  private final SerializationBuffer buffer;
+
+  /** The stack of nodes whose result needs to be recomputed. */
+  private long[] workStack = new long[64];
+
+  /**
+   * Creates a graph on the specified stores. If the node store is empty, a new graph is initialized
+   * containing only the root node; otherwise the graph previously written to the stores is loaded.
+   *
+   * @param game the game of the graph
+   * @param nodes the store of node records, with record size {@link #getNodeRecordSize(Game)}
+   * @param slots the store of child slots, with record size {@link #SLOT_SIZE}
+   * @param edges the store of edge records, with record size {@link #EDGE_SIZE}
+   * @param buckets the store of the hash buckets, with record size {@link #BUCKET_SIZE}
+   * @throws IllegalArgumentException if the stores contain a graph of a different game
+   * @throws InconsistencyError if the stores contain corrupt data
+   */
+  RecordGraph(Game<P, M, T> game,
+      RecordStore nodes, RecordStore slots, RecordStore edges, RecordStore buckets) {
+    this.game = Objects.requireNonNull(game);
+    positionSerializer = game.getPositionSerializer();
+    transformationSerializer = game.getTransformationSerializer();
+    keyFunction = InvariantKeyFunction.forGame(game);
+    int recordSize = getNodeRecordSize(game);
+    if (nodes.getRecordSize() != recordSize || slots.getRecordSize() != SLOT_SIZE
+        || edges.getRecordSize() != EDGE_SIZE || buckets.getRecordSize() != BUCKET_SIZE) {
+      throw new IllegalArgumentException("Invalid record size");
+    }
+    this.nodes = nodes;
+    this.slots = slots;
+    this.edges = edges;
+    this.buckets = buckets;
+
+    buffer = new SerializationBuffer(recordSize - DATA);
+
+    if (nodes.getCapacity() == 0) {
+      nodes.ensureCapacity(1);
+      nodes.putLong(0, HEADER_MAGIC, MAGIC);
+      nodes.putInt(0, HEADER_RECORD_SIZE, recordSize);
+      nodes.putInt(0, HEADER_MAX_MOVES, game.getMaxPossibleMoves());
+      setNodeCount(1);
+      setSlotCount(0);
+      setEdgeCount(1);
+      setNormalCount(0);
+      setBucketCount(INITIAL_BUCKET_COUNT);
+      buckets.ensureCapacity(bucketCount);
+      P root = game.getInitialPosition();
+      newNormalNode(root, hash(root));
+    } else {
+      if (nodes.getLong(0, HEADER_MAGIC) != MAGIC) {
+        throw new InconsistencyError("Invalid graph header");
+      }
+      if (nodes.getInt(0, HEADER_RECORD_SIZE) != recordSize
+          || nodes.getInt(0, HEADER_MAX_MOVES) != game.getMaxPossibleMoves()) {
+        throw new IllegalArgumentException("The stored graph is not for " + game);
+      }
+      nodeCount = nodes.getLong(0, HEADER_NODE_COUNT);
+      slotCount = nodes.getLong(0, HEADER_SLOT_COUNT);
+      edgeCount = nodes.getLong(0, HEADER_EDGE_COUNT);
+      bucketCount = nodes.getLong(0, HEADER_BUCKET_COUNT);
+      normalCount = nodes.getLong(0, HEADER_NORMAL_COUNT);
+      if (nodes.getCapacity() < nodeCount || slots.getCapacity() < slotCount
+          || edges.getCapacity() < edgeCount || buckets.getCapacity() < bucketCount) {
+        throw new InconsistencyError("Truncated graph data");
+      }
+      if (!readPosition(ROOT).equals(game.getInitialPosition())) {
+        throw new IllegalArgumentException("The stored graph is not for " + game);
+      }
+    }
+  }
+
+  /**
+   * Returns the size of the node records for a game.
+   *
+   * @param game a game
+   * @return the size of a node record in bytes
+   */
+  static int getNodeRecordSize(Game<?, ?, ?> game) {
+    int dataSize = Math.max(
+        game.getPositionSerializer().getPositionMaxSerializedSize(),
+        game.getTransformationSerializer().getTransformationSerializedSize());
+    return Math.max(HEADER_SIZE, (DATA + dataSize + 7) & ~7);
+  }
+
+  @Override
+  public Game<P, M, T> getGame() {
+    return game;
+  }
+
+  /**
+   * Returns the number of nodes in the graph.
+   *
+   * @return the number of nodes
+   */
+  public long size() {
+    return nodeCount - 1;
+  }
+
+  @Override
+  public GraphMatch<P, M, T> createMatch() {
+    RecordNormalNode<P, M, T> root = new RecordNormalNode<>(this, ROOT);
+    return new DefaultGraphMatch<>(root.getPosition(), root, game.getIdentityTransformation());
+  }
+
+  /**
+   * Returns the number of bytes allocated for storing the graph. This includes the unused space at
+   * the end of the last chunk of each store.
+   *
+   * @return the total size of the stores in bytes
+   */
+  public long getAllocatedBytes() {
+    return nodes.getAllocatedBytes() + slots.getAllocatedBytes() + edges.getAllocatedBytes()
+        + buckets.getAllocatedBytes();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      nodes.close();
+    } finally {
+      try {
+        slots.close();
+      } finally {
+        try {
+          edges.close();
+        } finally {
+          buckets.close();
+        }
+      }
+    }
+  }
+
+  private void setNodeCount(long count) {
+    nodeCount = count;
+    nodes.putLong(0, HEADER_NODE_COUNT, count);
+  }
+
+  private void setSlotCount(long count) {
+    slotCount = count;
+    nodes.putLong(0, HEADER_SLOT_COUNT, count);
+  }
+
+  private void setEdgeCount(long count) {
+    edgeCount = count;
+    nodes.putLong(0, HEADER_EDGE_COUNT, count);
+  }
+
+  private void setBucketCount(long count) {
+    bucketCount = count;
+    nodes.putLong(0, HEADER_BUCKET_COUNT, count);
+  }
+
+  private void setNormalCount(long count) {
+    normalCount = count;
+    nodes.putLong(0, HEADER_NORMAL_COUNT, count);
+  }
+
+  boolean isTransformationNode(long id) {
+    return (nodes.getInt(id, FLAGS) & TRANSFORMATION_FLAG) != 0;
+  }
+
+  GraphResult getResult(long id) {
+    return RESULTS[nodes.getInt(id, FLAGS) & RESULT_MASK];
+  }
+
+  private void setResult(long id, GraphResult result) {
+    int flags = nodes.getInt(id, FLAGS);
+    nodes.putInt(id, FLAGS, (flags & ~RESULT_MASK) | result.ordinal());
+  }
+
+  long getLinkedNode(long id) {
+    return nodes.getLong(id, LINK);
+  }
+
+  Node<P, M, T> getNode(long id) {
+    if (isTransformationNode(id)) {
+      return new RecordTransformationNode<>(this, id);
+    } else {
+      return new RecordNormalNode<>(this, id);
+    }
+  }
+
+  P readPosition(long id) {
+    nodes.getBytes(id, DATA, buffer.getBytes(), buffer.getBytes().length);
+    try {
+      return positionSerializer.readPosition(buffer.startReading());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  T readTransformation(long id) {
+    nodes.getBytes(id, DATA, buffer.getBytes(), buffer.getBytes().length);
+    try {
+      return transformationSerializer.readTransformation(buffer.startReading());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long allocateNode() {
+    long id = nodeCount;
+    nodes.ensureCapacity(id + 1);
+    setNodeCount(id + 1);
+    return id;
+  }
+
+  private int hash(P position) {
+    return keyFunction.hash(game.getCategoryFunction().category(position), position);
+  }
+
+  private long newNormalNode(P position, int hash) {
+    int childCount = position.getMoveCount();
+    GameStatus status = position.getStatus();
+    GraphResult result;
+    int flags = childCount << CHILD_COUNT_SHIFT;
+    if (childCount == 0) {
+      if (!status.isFinal()) {
+        throw new AssertionError("Non-final position has no valid moves");
+      }
+      result = GraphResult.from(status);
+    } else {
+      if (status.isFinal()) {
+        throw new AssertionError("Final position has valid moves");
+      }
+      result = GraphResult.UNKNOWN;
+      if (status.getCurrentPlayer() == Player.BLACK) {
+        flags |= BLACK_MOVES_FLAG;
+      }
+    }
+    try {
+      positionSerializer.writePosition(position, buffer.startWriting());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    /*
+     * The index is grown before the new node is allocated. The rehash inserts every allocated
+     * normal node, so growing afterwards would chain the new node into its bucket a second time,
+     * creating a cycle in the bucket.
+     */
+    if (normalCount + 1 > 2 * bucketCount) {
+      rehash(2 * bucketCount);
+    }
+
+    long firstSlot = slotCount;
+    slots.ensureCapacity(firstSlot + childCount);
+    setSlotCount(firstSlot + childCount);
+
+    long id = allocateNode();
+    nodes.putInt(id, FLAGS, flags | result.ordinal());
+    nodes.putInt(id, HASH, hash);
+    nodes.putLong(id, FIRST_SLOT, firstSlot);
+    nodes.putBytes(id, DATA, buffer.getBytes(), buffer.getLength());
+    addToIndex(id);
+    setNormalCount(normalCount + 1);
+    return id;
+  }
+
+  private long newTransformationNode(T transformation, long linkedNode) {
+    try {
+      transformationSerializer.writeTransformation(transformation, buffer.startWriting());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    GraphResult result = getResult(linkedNode);
+    if (transformation.isPlayerSwitching()) {
+      result = result.getOther();
+    }
+
+    long id = allocateNode();
+    nodes.putInt(id, FLAGS, TRANSFORMATION_FLAG | result.ordinal());
+    nodes.putLong(id, LINK, linkedNode);
+    nodes.putBytes(id, DATA, buffer.getBytes(), buffer.getLength());
+    /*
+     * The transformation node is a parent of its linked node, so that changes in the result of the
+     * linked node are propagated through it.
+     */
+    addParent(linkedNode, id);
+    return id;
+  }
+
+  private void addParent(long id, long parent) {
+    long edge = edgeCount;
+    edges.ensureCapacity(edge + 1);
+    setEdgeCount(edge + 1);
+    edges.putLong(edge, EDGE_PARENT, parent);
+    edges.putLong(edge, EDGE_NEXT, nodes.getLong(id, FIRST_PARENT));
+    nodes.putLong(id, FIRST_PARENT, edge);
+  }
+
+  private long bucketOf(int hash) {
+    return hash & 0xFFFFFFFFL & (bucketCount - 1);
+  }
+
+  private void addToIndex(long id) {
+    long bucket = bucketOf(nodes.getInt(id, HASH));
+    nodes.putLong(id, LINK, buckets.getLong(bucket, 0));
+    buckets.putLong(bucket, 0, id);
+  }
+
+  /** Clears the index, and inserts every allocated normal node with the new number of buckets. */
+  private void rehash(long newBucketCount) {
+    buckets.ensureCapacity(newBucketCount);
+    for (long bucket = 0; bucket < newBucketCount; bucket++) {
+      buckets.putLong(bucket, 0, 0);
+    }
+    setBucketCount(newBucketCount);
+    for (long id = ROOT; id < nodeCount; id++) {
+      if (!isTransformationNode(id)) {
+        addToIndex(id);
+      }
+    }
+  }
+
+  Node<P, M, T> getNextNode(RecordNormalNode<P, M, T> node, M move) {
+    P position = node.getPosition();
+    int moveIndex = position.getMoveIndex(move);
+    if (moveIndex == -1) {
+      throw new IllegalArgumentException(String.format("Move %s is not valid", move));
+    }
+    long slot = nodes.getLong(node.id, FIRST_SLOT) + moveIndex;
+    long child = slots.getLong(slot, 0);
+    if (child != 0) {
+      return getNode(child);
+    }
+    P nextPosition = position.moveByIndex(moveIndex);
+    int hash = hash(nextPosition);
+
+    /*
+     * We search the hash bucket of the position, and try to find an equivalent position among the
+     * nodes with the same hash.
+     */
+    long newNode = 0;
+    long match = 0;
+    P matchPosition = null;
+    T trans = null;
+    for (long candidate = buckets.getLong(bucketOf(hash), 0);
+        candidate != 0;
+        candidate = nodes.getLong(candidate, LINK)) {
+      if (nodes.getInt(candidate, HASH) == hash) {
+        matchPosition = readPosition(candidate);
+        trans = nextPosition.getTransformationTo(matchPosition);
+        if (trans != null) {
+          match = candidate;
+          break;
+        }
+      }
+    }
+    if (match != 0) {
+      if (trans.isIdentity()) {
+        /*
+         * The matching node itself can be used, since it contains the same position.
+         */
+        newNode = match;
+      } else {
+        /*
+         * Look for a transformation node parent of the match that leads to the new position.
+         */
+        for (long edge = nodes.getLong(match, FIRST_PARENT);
+            edge != 0;
+            edge = edges.getLong(edge, EDGE_NEXT)) {
+          long parent = edges.getLong(edge, EDGE_PARENT);
+          if (isTransformationNode(parent)
+              && nextPosition.transform(readTransformation(parent)).equals(matchPosition)) {
+            newNode = parent;
+            break;
+          }
+        }
+        if (newNode == 0) {
+          newNode = newTransformationNode(trans, match);
+        }
+      }
+    }
+    if (newNode == 0) {
+      /*
+       * No match has been found in the graph, so a new normal node is created for the position.
+       */
+      newNode = newNormalNode(nextPosition, hash);
+    }
+    /*
+     * Hook up the node to its new parent, and recompute the results towards the root.
+     */
+    slots.putLong(slot, 0, newNode);
+    addParent(newNode, node.id);
+    if (!getResult(node.id).isKnown()) {
+      recomputeResults(node.id);
+    }
+    return getNode(newNode);
+  }
+
+  private GraphResult computeResult(long id, int flags) {
+    if ((flags & TRANSFORMATION_FLAG) != 0) {
+      GraphResult result = getResult(nodes.getLong(id, LINK));
+      return readTransformation(id).isPlayerSwitching() ? result.getOther() : result;
+    }
+    GraphResultComputer resultComputer = GraphResultComputer.start(
+        (flags & BLACK_MOVES_FLAG) != 0 ? Player.BLACK : Player.WHITE);
+    int childCount = flags >>> CHILD_COUNT_SHIFT;
+    long firstSlot = nodes.getLong(id, FIRST_SLOT);
+    for (int i = 0; i < childCount; i++) {
+      long child = slots.getLong(firstSlot + i, 0);
+      resultComputer = resultComputer.withMove(child == 0 ? GraphResult.UNKNOWN : getResult(child));
+    }
+    return resultComputer.get();
+  }
+
+  private void push(long id, int size) {
+    if (size == workStack.length) {
+      workStack = Arrays.copyOf(workStack, 2 * size);
+    }
+    workStack[size] = id;
+    nodes.putInt(id, FLAGS, nodes.getInt(id, FLAGS) | QUEUED_FLAG);
+  }
+
+  /**
+   * Recomputes the result of a node, and if it changes, the results of its ancestors. A node is on
+   * the work stack at most once at any time, which is tracked by the queued flag of its record.
+   */
+  private void recomputeResults(long start) {
+    int size = 0;
+    push(start, size++);
+    while (size > 0) {
+      long id = workStack[--size];
+      int flags = nodes.getInt(id, FLAGS) & ~QUEUED_FLAG;
+      nodes.putInt(id, FLAGS, flags);
+      GraphResult oldResult = RESULTS[flags & RESULT_MASK];
+      if (oldResult.isKnown()) {
+        continue;
+      }
+      GraphResult newResult = computeResult(id, flags);
+      if (newResult != oldResult) {
+        setResult(id, newResult);
+        for (long edge = nodes.getLong(id, FIRST_PARENT);
+            edge != 0;
+            edge = edges.getLong(edge, EDGE_NEXT)) {
+          long parent = edges.getLong(edge, EDGE_PARENT);
+          if ((nodes.getInt(parent, FLAGS) & QUEUED_FLAG) == 0) {
+            push(parent, size++);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+
+/**
+ * A view of a normal node record. The position is read from the file on first use.
+ *
+ * @author Kazó Csaba
+ */
+class RecordNormalNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements NormalNode<P, M, T> {
+
+  private final RecordGraph<P, M, T> graph;
+  final long id;
+  private P position;
+
+  RecordNormalNode(RecordGraph<P, M, T> graph, long id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  P getPosition() {
+    if (position == null) {
+      position = graph.readPosition(id);
+    }
+    return position;
+  }
+
+  @Override
+  public Node<P, M, T> getNextNode(M move) {
+    return graph.getNextNode(this, move);
+  }
+
+  @Override
+  public GraphResult getResult() {
+    return graph.getResult(id);
+  }
+}
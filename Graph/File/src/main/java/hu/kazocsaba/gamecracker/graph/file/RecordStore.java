@@ -0,0 +1,187 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A store of fixed-size records outside the Java heap. The records are kept in byte buffers of
+ * limited size, called chunks; every chunk holds a whole number of records, therefore a record never
+ * straddles two chunks. The store is grown (and new chunks are allocated) on demand by
+ * {@link #ensureCapacity(long)}.
+ *
+ * <p>Records are addressed by their index, fields within a record by their byte offset. Newly
+ * allocated records are filled with zeros.
+ *
+ * @author Kazó Csaba
+ */
+abstract class RecordStore implements Closeable {
+
+  private final int recordSize;
+  private final int recordsPerChunk;
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+
+  /**
+   * Creates an empty store.
+   *
+   * @param recordSize the size of a record in bytes
+   * @param maxChunkSize the upper limit to the size of a chunk in bytes
+   */
+  RecordStore(int recordSize, int maxChunkSize) {
+    if (recordSize <= 0 || recordSize > maxChunkSize) {
+      throw new IllegalArgumentException("Invalid record size: " + recordSize);
+    }
+    this.recordSize = recordSize;
+    recordsPerChunk = maxChunkSize / recordSize;
+  }
+
+  /**
+   * Allocates a new chunk.
+   *
+   * @param start the byte offset of the chunk within the store
+   * @param size the size of the chunk in bytes
+   * @return a new buffer of the specified size, initially filled with zeros
+   * @throws IOException if an I/O error occurs
+   */
+  abstract ByteBuffer allocateChunk(long start, int size) throws IOException;
+
+  /**
+   * Returns the size of the records in this store.
+   *
+   * @return the record size in bytes
+   */
+  int getRecordSize() {
+    return recordSize;
+  }
+
+  /**
+   * Returns the number of records that can be accessed without growing the store.
+   *
+   * @return the number of accessible records
+   */
+  long getCapacity() {
+    return (long) chunks.size() * recordsPerChunk;
+  }
+
+  /**
+   * Returns the number of bytes allocated by this store.
+   *
+   * @return the total size of the chunks in bytes
+   */
+  long getAllocatedBytes() {
+    return getCapacity() * recordSize;
+  }
+
+  /**
+   * Makes sure that records with index less than {@code records} are accessible. The store is grown
+   * one chunk at a time.
+   *
+   * @param records the number of records required
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  void ensureCapacity(long records) {
+    try {
+      while (getCapacity() < records) {
+        ByteBuffer chunk = allocateChunk(getAllocatedBytes(), recordsPerChunk * recordSize);
+        chunk.order(ByteOrder.nativeOrder());
+        chunks.add(chunk);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private ByteBuffer chunk(long record) {
+    return chunks.get((int) (record / recordsPerChunk));
+  }
+
+  private int offset(long record, int field) {
+    return (int) (record % recordsPerChunk) * recordSize + field;
+  }
+
+  byte getByte(long record, int field) {
+    return chunk(record).get(offset(record, field));
+  }
+
+  void putByte(long record, int field, byte value) {
+    chunk(record).put(offset(record, field), value);
+  }
+
+  int getInt(long record, int field) {
+    return chunk(record).getInt(offset(record, field));
+  }
+
+  void putInt(long record, int field, int value) {
+    chunk(record).putInt(offset(record, field), value);
+  }
+
+  long getLong(long record, int field) {
+    return chunk(record).getLong(offset(record, field));
+  }
+
+  void putLong(long record, int field, long value) {
+    chunk(record).putLong(offset(record, field), value);
+  }
+
+  /**
+   * Copies bytes from a record into an array.
+   *
+   * @param record the index of the record
+   * @param field the offset of the first byte within the record
+   * @param dst the destination array
+   * @param length the number of bytes to copy
+   */
+  void getBytes(long record, int field, byte[] dst, int length) {
+    ByteBuffer chunk = chunk(record);
+    int offset = offset(record, field);
+    for (int i = 0; i < length; i++) {
+      dst[i] = chunk.get(offset + i);
+    }
+  }
+
+  /**
+   * Copies bytes from an array into a record.
+   *
+   * @param record the index of the record
+   * @param field the offset of the first byte within the record
+   * @param src the source array
+   * @param length the number of bytes to copy
+   */
+  void putBytes(long record, int field, byte[] src, int length) {
+    ByteBuffer chunk = chunk(record);
+    int offset = offset(record, field);
+    for (int i = 0; i < length; i++) {
+      chunk.put(offset + i, src[i]);
+    }
+  }
+
+  /**
+   * Returns the chunks allocated so far.
+   *
+   * @return the list of chunks
+   */
+  List<ByteBuffer> getChunks() {
+    return chunks;
+  }
+
+  /**
+   * Writes the modified content to the storage device, if there is one. The default implementation
+   * does nothing.
+   */
+  void flush() {
+  }
+
+  /**
+   * Releases the chunks of this store. Records cannot be accessed after this method is called.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    chunks.clear();
+  }
+}
@@ -0,0 +1,35 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+import hu.kazocsaba.gamecracker.graph.base.TransformationNode;
+
+/**
+ * A view of a transformation node record.
+ *
+ * @author Kazó Csaba
+ */
+class RecordTransformationNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements TransformationNode<P, M, T> {
+
+  private final RecordGraph<P, M, T> graph;
+  final long id;
+
+  RecordTransformationNode(RecordGraph<P, M, T> graph, long id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  @Override
+  public T getTransformation() {
+    return graph.readTransformation(id);
+  }
+
+  @Override
+  public NormalNode<P, M, T> getLinkedNode() {
+    return new RecordNormalNode<>(graph, graph.getLinkedNode(id));
+  }
+}
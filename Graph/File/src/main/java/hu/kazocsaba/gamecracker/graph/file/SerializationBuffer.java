@@ -0,0 +1,93 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A byte array reused for serializing positions and transformations. The array has a fixed
+ * capacity, the maximum serialized size declared by the serializer; writing more bytes than that
+ * fails with an {@code IOException}.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @author Kazó Csaba
+ */
+final class SerializationBuffer {
+
+  private final byte[] bytes;
+  private int length;
+
+  private final DataOutputStream output;
+  private final ByteArrayInputStream bytesInput;
+  private final DataInputStream input;
+
+  /**
+   * Creates a new buffer.
+   *
+   * @param capacity the size of the array
+   */
+  SerializationBuffer(int capacity) {
+    bytes = new byte[capacity];
+    output = new DataOutputStream(new BufferOutput());
+    bytesInput = new ByteArrayInputStream(bytes);
+    input = new DataInputStream(bytesInput);
+  }
+
+  /**
+   * Returns the array of the buffer. Data is read from this array, and written data is stored in
+   * it.
+   *
+   * @return the array of the buffer
+   */
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of bytes written since the last call to {@link #startWriting()}.
+   *
+   * @return the length of the written data
+   */
+  int getLength() {
+    return length;
+  }
+
+  /**
+   * Clears the buffer, and returns a stream writing into the array from its beginning.
+   *
+   * @return the output stream of the buffer
+   */
+  DataOutput startWriting() {
+    length = 0;
+    return output;
+  }
+
+  /**
+   * Returns a stream reading the array from its beginning.
+   *
+   * @return the input stream of the buffer
+   */
+  DataInput startReading() {
+    bytesInput.reset();
+    return input;
+  }
+
+  /*
+   * An output stream writing into the array.
+   */
+  private final class BufferOutput extends OutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      if (length == bytes.length) {
+        throw new IOException("Serialized data exceeds its declared maximum size");
+      }
+      bytes[length++] = (byte) b;
+    }
+  }
+}
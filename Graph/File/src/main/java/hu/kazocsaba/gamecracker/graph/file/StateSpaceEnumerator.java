@@ -0,0 +1,355 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import hu.kazocsaba.gamecracker.game.CategoryFunction;
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Enumerates the positions reachable from the initial position of a game, layer by layer, using
+ * external memory. Layer {@code d} contains the distinct positions reachable in {@code d} moves;
+ * positions related by a transformation are counted once, as they share their canonical record (see
+ * {@link LayeredSolver}). A position reachable in different numbers of moves appears in each of the
+ * corresponding layers.
+ *
+ * <p>Each layer is stored in a file, as a sorted list of distinct canonical records. The next layer
+ * is created by streaming the records of the current layer from its file and collecting the
+ * records of their successors in a buffer of limited size. Whenever the buffer fills up, it is
+ * sorted, its duplicates are removed, and, unless that freed up at least half of the buffer, it is
+ * written to a run file. Finally the runs are merged into the layer file, dropping the
+ * duplicates. Since at most {@value #MAX_MERGE_WIDTH} runs are merged at a time, and larger numbers
+ * of runs are merged in several passes, the memory used is bounded by the size of the buffer plus
+ * the buffers of the merged files, independently of the size of the layers.
+ *
+ * @param <P> the concrete position type
+ * @param <M> the concrete move type
+ * @param <T> the concrete transformation type
+ * @author Kazó Csaba
+ */
+public class StateSpaceEnumerator<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+
+  /** The default size of the sort buffer in bytes. */
+  public static final int DEFAULT_BUFFER_SIZE = 64 << 20;
+  /** The maximum number of runs merged at the same time. */
+  private static final int MAX_MERGE_WIDTH = 64;
+  private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+  private final Game<P, M, T> game;
+  private final Path directory;
+  private final RecordCodec<P, M, T> codec;
+  private final int recordSize;
+  private final int bufferCapacity;
+  /**
+   * Whether every move must increase the category of the position by one, making the layers
+   * contain the positions of a single category.
+   */
+  private final boolean categoryLayers;
+
+  private final List<Long> layerSizes = new ArrayList<>();
+  private int runCount;
+
+  /**
+   * Creates an enumerator with a sort buffer of the {@link #DEFAULT_BUFFER_SIZE default size}.
+   *
+   * @param game the game whose positions are to be enumerated
+   * @param directory the directory to store the layer files in; created if it does not exist
+   * @throws IllegalArgumentException if the game does not support canonical forms, and its
+   *     transformation type is not an enumeration
+   */
+  public StateSpaceEnumerator(Game<P, M, T> game, Path directory) {
+    this(game, directory, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates an enumerator.
+   *
+   * @param game the game whose positions are to be enumerated
+   * @param directory the directory to store the layer files in; created if it does not exist
+   * @param bufferSize the size of the sort buffer in bytes
+   * @throws IllegalArgumentException if the game does not support canonical forms, and its
+   *     transformation type is not an enumeration, or the buffer cannot hold at least two records
+   */
+  public StateSpaceEnumerator(Game<P, M, T> game, Path directory, int bufferSize) {
+    this(game, directory, bufferSize, false);
+  }
+
+  StateSpaceEnumerator(
+      Game<P, M, T> game, Path directory, int bufferSize, boolean categoryLayers) {
+    this.game = Objects.requireNonNull(game);
+    this.directory = Objects.requireNonNull(directory);
+    codec = new RecordCodec<>(game);
+    recordSize = codec.getRecordSize();
+    if (bufferSize / recordSize < 2) {
+      throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+    }
+    bufferCapacity = bufferSize / recordSize;
+    this.categoryLayers = categoryLayers;
+  }
+
+  /**
+   * Returns the file containing the records of a layer.
+   *
+   * @param directory the directory of the layer files
+   * @param layer the index of the layer
+   * @return the path of the layer file
+   */
+  static Path getLayerFile(Path directory, int layer) {
+    return directory.resolve(String.format("layer%03d.pos", layer));
+  }
+
+  /**
+   * Enumerates all the layers, until reaching an empty one.
+   *
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  public void enumerate() {
+    enumerate(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Enumerates the layers up to a maximum number of layers. The layers already enumerated are not
+   * computed again.
+   *
+   * @param maxLayers the maximum number of layers, including the layer of the initial position
+   * @throws UncheckedIOException if an I/O error occurs
+   */
+  public void enumerate(int maxLayers) {
+    try {
+      if (layerSizes.isEmpty()) {
+        Files.createDirectories(directory);
+        byte[] record = new byte[recordSize];
+        codec.canonicalize(game.getInitialPosition(), record);
+        try (OutputStream out = openOutput(getLayerFile(directory, 0))) {
+          out.write(record);
+        }
+        layerSizes.add(1L);
+      }
+      while (layerSizes.size() < maxLayers && layerSizes.get(layerSizes.size() - 1) > 0) {
+        long size = expand(layerSizes.size() - 1);
+        if (size == 0) {
+          Files.delete(getLayerFile(directory, layerSizes.size()));
+          break;
+        }
+        layerSizes.add(size);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the number of layers enumerated so far.
+   *
+   * @return the number of layers
+   */
+  public int getLayerCount() {
+    return layerSizes.size();
+  }
+
+  /**
+   * Returns the number of distinct positions in a layer.
+   *
+   * @param layer the index of the layer
+   * @return the number of positions in the layer
+   * @throws IndexOutOfBoundsException if the layer has not been enumerated
+   */
+  public long getLayerSize(int layer) {
+    return layerSizes.get(layer);
+  }
+
+  /**
+   * Returns the size of the file of a layer.
+   *
+   * @param layer the index of the layer
+   * @return the number of bytes the layer occupies on the disk
+   * @throws IndexOutOfBoundsException if the layer has not been enumerated
+   */
+  public long getLayerBytes(int layer) {
+    return layerSizes.get(layer) * recordSize;
+  }
+
+  /**
+   * Returns the number of sorted runs written so far. If the sort buffer can hold all the
+   * successors of every layer, no runs are written.
+   *
+   * @return the number of run files created
+   */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  private static DataInputStream openInput(Path path) throws IOException {
+    return new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), STREAM_BUFFER_SIZE));
+  }
+
+  private static OutputStream openOutput(Path path) throws IOException {
+    return new BufferedOutputStream(Files.newOutputStream(path), STREAM_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates the file of the layer following a layer.
+   *
+   * @return the number of records in the new layer
+   */
+  private long expand(int layer) throws IOException {
+    CategoryFunction<P> categoryFunction = game.getCategoryFunction();
+    long nextCategory =
+        categoryFunction.category(game.getInitialPosition()) + layer + 1;
+    RecordArray buffer = new RecordArray(recordSize);
+    List<Path> runs = new ArrayList<>();
+    byte[] record = new byte[recordSize];
+    try (DataInputStream in = openInput(getLayerFile(directory, layer))) {
+      for (long i = layerSizes.get(layer); i > 0; i--) {
+        in.readFully(record);
+        P position = codec.read(record);
+        for (int m = 0, moveCount = position.getMoveCount(); m < moveCount; m++) {
+          P next = position.moveByIndex(m);
+          if (categoryLayers && categoryFunction.category(next) != nextCategory) {
+            throw new IllegalArgumentException("Move " + position.getMove(m)
+                + " does not lead to the next layer from " + position);
+          }
+          if (buffer.size() == bufferCapacity) {
+            buffer.sortDistinct();
+            if (2 * buffer.size() > bufferCapacity) {
+              runs.add(writeRun(buffer));
+              buffer.clear();
+            }
+          }
+          codec.canonicalize(next, record);
+          buffer.add(record);
+        }
+      }
+    }
+    buffer.sortDistinct();
+    Path layerFile = getLayerFile(directory, layer + 1);
+    if (runs.isEmpty()) {
+      try (OutputStream out = openOutput(layerFile)) {
+        buffer.write(out);
+      }
+      return buffer.size();
+    }
+    if (buffer.size() > 0) {
+      runs.add(writeRun(buffer));
+    }
+    buffer = null;
+    while (runs.size() > MAX_MERGE_WIDTH) {
+      List<Path> group = new ArrayList<>(runs.subList(0, MAX_MERGE_WIDTH));
+      runs.subList(0, MAX_MERGE_WIDTH).clear();
+      Path merged = newRunFile();
+      merge(group, merged);
+      runs.add(merged);
+    }
+    return merge(runs, layerFile);
+  }
+
+  private Path newRunFile() throws IOException {
+    runCount++;
+    return Files.createTempFile(directory, "run", ".tmp");
+  }
+
+  private Path writeRun(RecordArray buffer) throws IOException {
+    Path run = newRunFile();
+    try (OutputStream out = openOutput(run)) {
+      buffer.write(out);
+    }
+    return run;
+  }
+
+  /**
+   * Merges sorted runs of distinct records into a single sorted file of distinct records, and
+   * deletes the runs.
+   *
+   * @return the number of records written
+   */
+  private long merge(List<Path> runs, Path target) throws IOException {
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(), new Comparator<RunReader>() {
+      @Override
+      public int compare(RunReader r1, RunReader r2) {
+        return RecordArray.compare(r1.record, 0, r2.record, 0, recordSize);
+      }
+    });
+    long count = 0;
+    try (OutputStream out = openOutput(target)) {
+      for (Path run : runs) {
+        RunReader reader = new RunReader(run);
+        if (reader.next()) {
+          queue.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+      byte[] last = new byte[recordSize];
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        if (count == 0 || RecordArray.compare(reader.record, 0, last, 0, recordSize) != 0) {
+          out.write(reader.record);
+          System.arraycopy(reader.record, 0, last, 0, recordSize);
+          count++;
+        }
+        if (reader.next()) {
+          queue.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+    } finally {
+      for (RunReader reader : queue) {
+        reader.close();
+      }
+    }
+    for (Path run : runs) {
+      Files.delete(run);
+    }
+    return count;
+  }
+
+  /*
+   * Reads the records of a run file one by one.
+   */
+  private final class RunReader {
+
+    private final DataInputStream in;
+    private long remaining;
+    final byte[] record = new byte[recordSize];
+
+    RunReader(Path path) throws IOException {
+      remaining = Files.size(path) / recordSize;
+      in = openInput(path);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return {@code false} if the run has no more records
+     */
+    boolean next() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      in.readFully(record);
+      remaining--;
+      return true;
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class FileGraphTest extends AbstractGraphTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  private final List<FileGraph<?, ?, ?>> graphs = new ArrayList<>();
+
+  @After
+  public void closeGraphs() throws IOException {
+    for (FileGraph<?, ?, ?> graph : graphs) {
+      graph.close();
+    }
+  }
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game)
+      throws IOException {
+    FileGraph<P, M, T> graph = FileGraph.create(game, folder.newFolder().toPath());
+    graphs.add(graph);
+    return graph;
+  }
+
+  @Test
+  public void testEquivalentPositionsShareNode() throws IOException {
+    try (FileGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        FileGraph.create(new TicTacToe(), folder.getRoot().toPath())) {
+      RecordNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> root =
+          new RecordNormalNode<>(graph, 1);
+      Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner1 =
+          root.getNextNode(TicTacToeMove.get(0, 0));
+      Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner2 =
+          root.getNextNode(TicTacToeMove.get(2, 2));
+      Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> center =
+          root.getNextNode(TicTacToeMove.get(1, 1));
+
+      assertTrue(corner1.isNormal());
+      assertFalse(corner2.isNormal());
+      assertEquals(((RecordNormalNode<?, ?, ?>) corner1).id,
+          ((RecordNormalNode<?, ?, ?>) corner2.asTransformationNode().getLinkedNode()).id);
+      assertTrue(center.isNormal());
+      assertEquals(4, graph.size());
+
+      // asking again returns the existing child
+      assertEquals(((RecordTransformationNode<?, ?, ?>) corner2).id,
+          ((RecordTransformationNode<?, ?, ?>) root.getNextNode(TicTacToeMove.get(2, 2))).id);
+      assertEquals(4, graph.size());
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testReopen() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    long size;
+    try (FileGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph =
+        FileGraph.create(new Reversi4(), directory)) {
+      solve(graph.createMatch());
+      size = graph.size();
+    }
+    try (FileGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph =
+        FileGraph.open(new Reversi4(), directory)) {
+      assertEquals(size, graph.size());
+      assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+      solve(graph.createMatch());
+      assertEquals(size, graph.size());
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testLookupAfterRehash() throws IOException {
+    try (FileGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> graph =
+        FileGraph.create(new Reversi6(), folder.getRoot().toPath())) {
+      explore(graph.createMatch(), 7, new HashSet<>());
+      long size = graph.size();
+      // more than 2048 normal nodes, so the index has been grown several times
+      assertTrue(size > 10000);
+
+      // every position is found again
+      explore(graph.createMatch(), 7, new HashSet<>());
+      assertEquals(size, graph.size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateExisting() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    FileGraph.create(new TicTacToe(), directory).close();
+    FileGraph.create(new TicTacToe(), directory);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenOtherGame() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    FileGraph.create(new TicTacToe(), directory).close();
+    FileGraph.open(new Reversi4(), directory);
+  }
+}
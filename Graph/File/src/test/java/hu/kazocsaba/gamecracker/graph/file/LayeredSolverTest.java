@@ -0,0 +1,137 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class LayeredSolverTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() {
+    LayeredSolver<TicTacToePosition, TicTacToeMove, SquareSymmetry> solver =
+        new LayeredSolver<>(new TicTacToe(), folder.getRoot().toPath());
+    assertEquals(GraphResult.DRAW, solver.solve());
+
+    // the number of tic-tac-toe positions up to symmetry, by the number of marks
+    int[] layerSizes = {1, 3, 12, 38, 108, 174, 204, 153, 57, 15};
+    assertEquals(layerSizes.length, solver.getLayerCount());
+    for (int i = 0; i < layerSizes.length; i++) {
+      assertEquals(layerSizes[i], solver.getLayerSize(i));
+    }
+    checkResults(solver, new TicTacToe());
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() {
+    LayeredSolver<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> solver =
+        new LayeredSolver<>(new Reversi4(), folder.getRoot().toPath());
+    assertEquals(GraphResult.BLACK_WINS, solver.solve());
+    assertEquals(13, solver.getLayerCount());
+    assertEquals(1, solver.getLayerSize(0));
+    checkResults(solver, new Reversi4());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNotSolved() {
+    TicTacToe game = new TicTacToe();
+    new LayeredSolver<>(game, folder.getRoot().toPath()).getResult(game.getInitialPosition());
+  }
+
+  @Test
+  public void testSort() {
+    Random random = new Random(5);
+    RecordArray array = new RecordArray(3);
+    byte[] record = new byte[3];
+    for (int i = 0; i < 10000; i++) {
+      record[0] = (byte) random.nextInt(4);
+      record[1] = (byte) (random.nextInt(64) - 32);
+      record[2] = (byte) random.nextInt(256);
+      array.add(record);
+    }
+    array.sortDistinct();
+    byte[] previous = new byte[3];
+    for (int i = 0; i < array.size(); i++) {
+      array.get(i, record);
+      if (i > 0) {
+        assertTrue(RecordArray.compare(previous, 0, record, 0, 3) < 0);
+      }
+      assertEquals(i, array.indexOf(record));
+      System.arraycopy(record, 0, previous, 0, 3);
+    }
+  }
+
+  /**
+   * Checks the results of random positions against the results computed by a memoized recursive
+   * search.
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void checkResults(
+        LayeredSolver<P, M, T> solver, Game<P, M, T> game) {
+    Map<P, GraphResult> results = new HashMap<>();
+    Random random = new Random(4);
+    for (int walk = 0; walk < 50; walk++) {
+      P position = game.getInitialPosition();
+      while (true) {
+        assertEquals(solve(position, results), solver.getResult(position));
+        if (position.getStatus().isFinal()) {
+          break;
+        }
+        List<M> moves = position.getMoves();
+        position = position.move(moves.get(random.nextInt(moves.size())));
+      }
+    }
+  }
+
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> GraphResult solve(P position, Map<P, GraphResult> results) {
+    GraphResult result = results.get(position);
+    if (result == null) {
+      if (position.getStatus().isFinal()) {
+        result = GraphResult.from(position.getStatus());
+      } else {
+        GraphResultComputer resultComputer =
+            GraphResultComputer.start(position.getStatus().getCurrentPlayer());
+        for (M move : position.getMoves()) {
+          resultComputer = resultComputer.withMove(solve(position.move(move), results));
+        }
+        result = resultComputer.get();
+      }
+      results.put(position, result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,63 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class OffHeapGraphTest extends AbstractGraphTest {
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game) {
+    return new OffHeapGraph<>(game);
+  }
+
+  @Test(timeout = 5000)
+  public void testAllocatedBytes() {
+    OffHeapGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph =
+        new OffHeapGraph<>(new Reversi4());
+    solve(graph.createMatch());
+
+    assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+    assertTrue(graph.getAllocatedBytes()
+        >= graph.size() * RecordGraph.getNodeRecordSize(new Reversi4()));
+  }
+
+  @Test(timeout = 20000)
+  public void testLookupAfterRehash() {
+    OffHeapGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> graph =
+        new OffHeapGraph<>(new Reversi6());
+    explore(graph.createMatch(), 7, new HashSet<>());
+    long size = graph.size();
+    // the index has been grown several times
+    assertTrue(size > 10000);
+
+    // every position is found again
+    explore(graph.createMatch(), 7, new HashSet<>());
+    assertEquals(size, graph.size());
+  }
+}
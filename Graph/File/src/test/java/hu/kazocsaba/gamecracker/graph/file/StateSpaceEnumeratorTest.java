@@ -0,0 +1,137 @@
+package hu.kazocsaba.gamecracker.graph.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class StateSpaceEnumeratorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() throws IOException {
+    TicTacToe game = new TicTacToe();
+    // the number of tic-tac-toe positions up to symmetry, by the number of marks
+    long[] layerSizes = {1, 3, 12, 38, 108, 174, 204, 153, 57, 15};
+
+    StateSpaceEnumerator<TicTacToePosition, TicTacToeMove, SquareSymmetry> enumerator =
+        new StateSpaceEnumerator<>(game, folder.newFolder().toPath());
+    enumerator.enumerate();
+    checkLayers(enumerator, layerSizes);
+    assertEquals(0, enumerator.getRunCount());
+
+    // a buffer of two records forces more runs than can be merged in a single pass
+    Path directory = folder.newFolder().toPath();
+    enumerator = new StateSpaceEnumerator<>(
+        game, directory, 2 * game.getPositionSerializer().getPositionMaxSerializedSize());
+    enumerator.enumerate();
+    checkLayers(enumerator, layerSizes);
+    assertTrue(enumerator.getRunCount() > 64);
+    checkFiles(enumerator, directory);
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() throws IOException {
+    Reversi4 game = new Reversi4();
+    StateSpaceEnumerator<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> reference =
+        new StateSpaceEnumerator<>(game, folder.newFolder().toPath());
+    reference.enumerate();
+    assertEquals(13, reference.getLayerCount());
+    assertEquals(10513, getTotalSize(reference));
+
+    Path directory = folder.newFolder().toPath();
+    StateSpaceEnumerator<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> enumerator =
+        new StateSpaceEnumerator<>(game, directory, 4096);
+    enumerator.enumerate();
+    checkLayers(enumerator, reference);
+    assertTrue(enumerator.getRunCount() > 0);
+    checkFiles(enumerator, directory);
+  }
+
+  @Test(timeout = 60000)
+  public void testReversi6() throws IOException {
+    Reversi6 game = new Reversi6();
+    StateSpaceEnumerator<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> reference =
+        new StateSpaceEnumerator<>(game, folder.newFolder().toPath());
+    reference.enumerate(8);
+    assertEquals(8, reference.getLayerCount());
+
+    Path directory = folder.newFolder().toPath();
+    StateSpaceEnumerator<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> enumerator =
+        new StateSpaceEnumerator<>(game, directory, 1 << 12);
+    enumerator.enumerate(5);
+    assertEquals(5, enumerator.getLayerCount());
+    // continues from the layers already enumerated
+    enumerator.enumerate(8);
+    checkLayers(enumerator, reference);
+    assertTrue(enumerator.getRunCount() > 0);
+    checkFiles(enumerator, directory);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBufferSize() {
+    TicTacToe game = new TicTacToe();
+    new StateSpaceEnumerator<>(game, folder.getRoot().toPath(),
+        game.getPositionSerializer().getPositionMaxSerializedSize());
+  }
+
+  private static void checkLayers(StateSpaceEnumerator<?, ?, ?> enumerator, long[] layerSizes) {
+    assertEquals(layerSizes.length, enumerator.getLayerCount());
+    for (int i = 0; i < layerSizes.length; i++) {
+      assertEquals(layerSizes[i], enumerator.getLayerSize(i));
+    }
+  }
+
+  private static void checkLayers(
+      StateSpaceEnumerator<?, ?, ?> enumerator, StateSpaceEnumerator<?, ?, ?> reference) {
+    assertEquals(reference.getLayerCount(), enumerator.getLayerCount());
+    for (int i = 0; i < reference.getLayerCount(); i++) {
+      assertEquals(reference.getLayerSize(i), enumerator.getLayerSize(i));
+      assertEquals(reference.getLayerBytes(i), enumerator.getLayerBytes(i));
+    }
+  }
+
+  private static long getTotalSize(StateSpaceEnumerator<?, ?, ?> enumerator) {
+    long total = 0;
+    for (int i = 0; i < enumerator.getLayerCount(); i++) {
+      total += enumerator.getLayerSize(i);
+    }
+    return total;
+  }
+
+  /**
+   * Checks that only the layer files are left in the directory, and their sizes are reported.
+   */
+  private static void checkFiles(StateSpaceEnumerator<?, ?, ?> enumerator, Path directory)
+      throws IOException {
+    for (int i = 0; i < enumerator.getLayerCount(); i++) {
+      Path file = StateSpaceEnumerator.getLayerFile(directory, i);
+      assertEquals(enumerator.getLayerBytes(i), Files.size(file));
+    }
+    assertEquals(enumerator.getLayerCount(), directory.toFile().list().length);
+  }
+}
@@ -0,0 +1,419 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.PositionSerializer;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.base.DefaultGraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An in-memory Graph implementation storing the nodes in parallel primitive arrays. Only the normal
+ * nodes are stored; they are identified by {@code int} ids, and each of their properties is kept
+ * in a separate array indexed by the id:
+ * <ul>
+ * <li>a {@code byte} of flags, containing the result of the node;</li>
+ * <li>the serialized position;</li>
+ * <li>the children, as a contiguous range of packed child edges. An edge holds the id of the child
+ * normal node and the ordinal of the transformation leading to it, so transformation nodes need no
+ * storage of their own;</li>
+ * <li>the parents, as a contiguous range of ids in a shared parent array. When the range of a node
+ * fills up, it is moved to the end of the array with twice the capacity. The space left behind is
+ * reclaimed by copying the ranges to a new array once it exceeds a quarter of the capacity of the
+ * ranges.</li>
+ * </ul>
+ *
+ * <p>Node objects are only created when requested through the Graph API, as views of the arrays.
+ * The arrays are paged, so they grow without copying, and their size is not limited by the maximum
+ * length of Java arrays. The transformation type of the game must be an enumeration.
+ *
+ * @author Kazó Csaba
+ */
+public class ArrayGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends Graph<P, M, T> {
+
+  /* Flag bit in addition to the ones defined by NodeIndex. */
+  private static final int QUEUED_FLAG = 0x10;
+  /** The parent array is not compacted while its used length is below this. */
+  private static final long MIN_COMPACTED_PARENTS = 1024;
+
+  final Game<P, M, T> game;
+  private final PositionSerializer<P> positionSerializer;
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+  /** The transformations of the game, indexed by their ordinal. */
+  private final T[] transformations;
+  private final int positionSize;
+
+  /* Node properties. Node 0 is unused, so that 0 can mark a missing child and an empty slot. */
+  private final BigByteArray flags = new BigByteArray();
+  private final BigByteArray positions = new BigByteArray();
+  /** The start of the child range of each node; the range ends at the start of the next node. */
+  private final BigLongArray childStart = new BigLongArray();
+  private final BigLongArray parentStart = new BigLongArray();
+  private final BigIntArray parentCount = new BigIntArray();
+
+  /** The child edges, each packing a child id and a transformation ordinal. */
+  private final BigLongArray children = new BigLongArray();
+  private BigIntArray parents = new BigIntArray();
+
+  /** The hashes of the nodes, and the hash table of the node ids. */
+  private final NodeIndex index = new NodeIndex();
+
+  private int nodeCount;
+  private long childCount;
+  /** The used length of the parent array. */
+  private long parentEnd;
+  /** The total capacity of the parent ranges; the rest of the used length is unused space. */
+  private long parentCapacity;
+
+  /* Buffers for serialization, reused for every position. */
+  private final byte[] buffer;
+  private final BufferOutput bufferOutput;
+  private final DataOutputStream dataOutput;
+  private final ByteArrayInputStream bufferInput;
+  private final DataInputStream dataInput;
+
+  /** The stack of nodes whose result needs to be recomputed. */
+  private int[] workStack = new int[64];
+
+  /**
+   * Creates a new graph containing only the root node.
+   *
+   * @param game the game whose positions the graph will contain
+   * @throws IllegalArgumentException if the transformation type of the game is not an enumeration
+   */
+  public ArrayGraph(Game<P, M, T> game) {
+    this.game = Objects.requireNonNull(game);
+    transformations = NodeIndex.getTransformations(game);
+    positionSerializer = game.getPositionSerializer();
+    keyFunction = InvariantKeyFunction.forGame(game);
+    positionSize = positionSerializer.getPositionMaxSerializedSize();
+
+    buffer = new byte[positionSize];
+    bufferOutput = new BufferOutput();
+    dataOutput = new DataOutputStream(bufferOutput);
+    bufferInput = new ByteArrayInputStream(buffer);
+    dataInput = new DataInputStream(bufferInput);
+
+    nodeCount = 1;
+    childStart.ensureCapacity(2);
+    P root = game.getInitialPosition();
+    newNode(root, hash(root));
+  }
+
+  @Override
+  public Game<P, M, T> getGame() {
+    return game;
+  }
+
+  /**
+   * Returns the number of nodes in the graph. Only the normal nodes are counted; transformation
+   * nodes are stored as part of the edges.
+   *
+   * @return the number of normal nodes
+   */
+  public int size() {
+    return nodeCount - 1;
+  }
+
+  /**
+   * Returns the number of bytes allocated for the arrays of the graph.
+   *
+   * @return the allocated size in bytes
+   */
+  public long getAllocatedBytes() {
+    return flags.getAllocatedBytes() + index.getAllocatedBytes() + positions.getAllocatedBytes()
+        + childStart.getAllocatedBytes() + parentStart.getAllocatedBytes()
+        + parentCount.getAllocatedBytes() + children.getAllocatedBytes()
+        + parents.getAllocatedBytes();
+  }
+
+  /**
+   * Returns the length of the space left unused in the parent array by the ranges moved from it.
+   *
+   * @return the number of unused elements before the end of the parent array
+   */
+  long getUnusedParentSpace() {
+    return parentEnd - parentCapacity;
+  }
+
+  /**
+   * Returns the number of parents stored for the nodes.
+   *
+   * @return the total parent count of the nodes
+   */
+  long getParentEdgeCount() {
+    long total = 0;
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      total += parentCount.get(id);
+    }
+    return total;
+  }
+
+  @Override
+  public GraphMatch<P, M, T> createMatch() {
+    ArrayNormalNode<P, M, T> root = new ArrayNormalNode<>(this, NodeIndex.ROOT);
+    return new DefaultGraphMatch<>(root.getPosition(), root, game.getIdentityTransformation());
+  }
+
+  GraphResult getResult(int id) {
+    return NodeIndex.RESULTS[flags.get(id) & NodeIndex.RESULT_MASK];
+  }
+
+  P readPosition(int id) {
+    long offset = (long) id * positionSize;
+    for (int i = 0; i < positionSize; i++) {
+      buffer[i] = positions.get(offset + i);
+    }
+    bufferInput.reset();
+    try {
+      return positionSerializer.readPosition(dataInput);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int hash(P position) {
+    return keyFunction.hash(game.getCategoryFunction().category(position), position);
+  }
+
+  private int newNode(P position, int hash) {
+    if (nodeCount == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many nodes");
+    }
+    int moveCount = position.getMoveCount();
+    GameStatus status = position.getStatus();
+    GraphResult result;
+    int nodeFlags = 0;
+    if (moveCount == 0) {
+      if (!status.isFinal()) {
+        throw new AssertionError("Non-final position has no valid moves");
+      }
+      result = GraphResult.from(status);
+    } else {
+      if (status.isFinal()) {
+        throw new AssertionError("Final position has valid moves");
+      }
+      result = GraphResult.UNKNOWN;
+      if (status.getCurrentPlayer() == Player.BLACK) {
+        nodeFlags |= NodeIndex.BLACK_MOVES_FLAG;
+      }
+    }
+    bufferOutput.length = 0;
+    try {
+      positionSerializer.writePosition(position, dataOutput);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    int id = nodeCount++;
+    flags.ensureCapacity(nodeCount);
+    parentStart.ensureCapacity(nodeCount);
+    parentCount.ensureCapacity(nodeCount);
+    positions.ensureCapacity((long) nodeCount * positionSize);
+    childStart.ensureCapacity(nodeCount + 1);
+
+    flags.set(id, (byte) (nodeFlags | result.ordinal()));
+    long offset = (long) id * positionSize;
+    for (int i = 0; i < bufferOutput.length; i++) {
+      positions.set(offset + i, buffer[i]);
+    }
+    childStart.set(id, childCount);
+    childCount += moveCount;
+    children.ensureCapacity(childCount);
+    childStart.set(id + 1, childCount);
+
+    index.add(id, hash);
+    return id;
+  }
+
+  private void addParent(int id, int parent) {
+    int count = parentCount.get(id);
+    long start = parentStart.get(id);
+    if ((count & (count - 1)) == 0) {
+      /*
+       * The range is full (its capacity is always the smallest power of two not less than the
+       * count), so it is moved to the end of the array with twice the capacity.
+       */
+      int capacity = count == 0 ? 1 : 2 * count;
+      long newStart = parentEnd;
+      parentEnd += capacity;
+      parentCapacity += capacity - count;
+      parents.ensureCapacity(parentEnd);
+      for (int i = 0; i < count; i++) {
+        parents.set(newStart + i, parents.get(start + i));
+      }
+      start = newStart;
+      parentStart.set(id, start);
+    }
+    parents.set(start + count, parent);
+    parentCount.set(id, count + 1);
+    if (parentEnd >= MIN_COMPACTED_PARENTS && 4 * (parentEnd - parentCapacity) > parentCapacity) {
+      compactParents();
+    }
+  }
+
+  /**
+   * Copies the parent ranges to a new array in the order of the node ids, leaving out the unused
+   * space. The capacity of each range is kept, so that {@link #addParent} can still tell when the
+   * range is full.
+   */
+  private void compactParents() {
+    BigIntArray compacted = new BigIntArray();
+    compacted.ensureCapacity(parentCapacity);
+    long end = 0;
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      int count = parentCount.get(id);
+      long start = parentStart.get(id);
+      for (int i = 0; i < count; i++) {
+        compacted.set(end + i, parents.get(start + i));
+      }
+      parentStart.set(id, end);
+      end += count <= 1 ? count : Integer.highestOneBit(count - 1) << 1;
+    }
+    parents = compacted;
+    parentEnd = end;
+  }
+
+  private Node<P, M, T> getNode(long edge) {
+    ArrayNormalNode<P, M, T> node = new ArrayNormalNode<>(this, NodeIndex.edgeNode(edge));
+    T transformation = transformations[NodeIndex.edgeTransformation(edge)];
+    if (transformation.isIdentity()) {
+      return node;
+    }
+    return new ArrayTransformationNode<>(transformation, node);
+  }
+
+  Node<P, M, T> getNextNode(ArrayNormalNode<P, M, T> node, M move) {
+    P position = node.getPosition();
+    int moveIndex = position.getMoveIndex(move);
+    if (moveIndex == -1) {
+      throw new IllegalArgumentException(String.format("Move %s is not valid", move));
+    }
+    long edgeIndex = childStart.get(node.id) + moveIndex;
+    long edge = children.get(edgeIndex);
+    if (edge != 0) {
+      return getNode(edge);
+    }
+    P nextPosition = position.moveByIndex(moveIndex);
+    int hash = hash(nextPosition);
+
+    /*
+     * We search the nodes with the same hash as the new position, and try to find an equivalent
+     * position. A transformation to an existing node simply becomes part of the edge.
+     */
+    int child = 0;
+    T trans = null;
+    for (long slot = index.firstSlot(hash); index.get(slot) != 0; slot = index.nextSlot(slot)) {
+      int candidate = index.get(slot);
+      if (index.getHash(candidate) == hash) {
+        trans = nextPosition.getTransformationTo(readPosition(candidate));
+        if (trans != null) {
+          child = candidate;
+          break;
+        }
+      }
+    }
+    if (child == 0) {
+      child = newNode(nextPosition, hash);
+      trans = game.getIdentityTransformation();
+    }
+    edge = NodeIndex.packEdge(child, ((Enum<?>) trans).ordinal());
+    children.set(edgeIndex, edge);
+    addParent(child, node.id);
+    if (!getResult(node.id).isKnown()) {
+      recomputeResults(node.id);
+    }
+    return getNode(edge);
+  }
+
+  private GraphResult computeResult(int id, int nodeFlags) {
+    GraphResultComputer resultComputer = GraphResultComputer.start(
+        (nodeFlags & NodeIndex.BLACK_MOVES_FLAG) != 0 ? Player.BLACK : Player.WHITE);
+    long end = childStart.get(id + 1);
+    for (long i = childStart.get(id); i < end; i++) {
+      long edge = children.get(i);
+      GraphResult childResult = GraphResult.UNKNOWN;
+      if (edge != 0) {
+        childResult = getResult(NodeIndex.edgeNode(edge));
+        if (transformations[NodeIndex.edgeTransformation(edge)].isPlayerSwitching()) {
+          childResult = childResult.getOther();
+        }
+      }
+      resultComputer = resultComputer.withMove(childResult);
+    }
+    return resultComputer.get();
+  }
+
+  private void push(int id, int size) {
+    if (size == workStack.length) {
+      workStack = Arrays.copyOf(workStack, 2 * size);
+    }
+    workStack[size] = id;
+    flags.set(id, (byte) (flags.get(id) | QUEUED_FLAG));
+  }
+
+  /**
+   * Recomputes the result of a node, and if it changes, the results of its ancestors. A node is on
+   * the work stack at most once at any time, which is tracked by its queued flag.
+   */
+  private void recomputeResults(int start) {
+    int size = 0;
+    push(start, size++);
+    while (size > 0) {
+      int id = workStack[--size];
+      int nodeFlags = flags.get(id) & ~QUEUED_FLAG;
+      flags.set(id, (byte) nodeFlags);
+      GraphResult oldResult = NodeIndex.RESULTS[nodeFlags & NodeIndex.RESULT_MASK];
+      if (oldResult.isKnown()) {
+        continue;
+      }
+      GraphResult newResult = computeResult(id, nodeFlags);
+      if (newResult != oldResult) {
+        flags.set(id, (byte) ((nodeFlags & ~NodeIndex.RESULT_MASK) | newResult.ordinal()));
+        long first = parentStart.get(id);
+        long end = first + parentCount.get(id);
+        for (long i = first; i < end; i++) {
+          int parent = parents.get(i);
+          if ((flags.get(parent) & QUEUED_FLAG) == 0) {
+            push(parent, size++);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * An output stream writing into the serialization buffer.
+   */
+  private final class BufferOutput extends OutputStream {
+
+    private int length;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (length == buffer.length) {
+        throw new IOException("Serialized position exceeds its declared maximum size");
+      }
+      buffer[length++] = (byte) b;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+
+/**
+ * A view of a node of an {@link ArrayGraph}. The position is deserialized on first use.
+ *
+ * @author Kazó Csaba
+ */
+class ArrayNormalNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements NormalNode<P, M, T> {
+
+  private final ArrayGraph<P, M, T> graph;
+  final int id;
+  private P position;
+
+  ArrayNormalNode(ArrayGraph<P, M, T> graph, int id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  P getPosition() {
+    if (position == null) {
+      position = graph.readPosition(id);
+    }
+    return position;
+  }
+
+  @Override
+  public Node<P, M, T> getNextNode(M move) {
+    return graph.getNextNode(this, move);
+  }
+
+  @Override
+  public GraphResult getResult() {
+    return graph.getResult(id);
+  }
+}
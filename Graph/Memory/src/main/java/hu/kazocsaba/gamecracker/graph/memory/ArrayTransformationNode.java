@@ -0,0 +1,36 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+import hu.kazocsaba.gamecracker.graph.base.TransformationNode;
+
+/**
+ * A view of an edge of an {@link ArrayGraph} or a {@link RetrogradeGraph} with a non-identity
+ * transformation.
+ *
+ * @author Kazó Csaba
+ */
+class ArrayTransformationNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements TransformationNode<P, M, T> {
+
+  private final T transformation;
+  private final NormalNode<P, M, T> linkedNode;
+
+  ArrayTransformationNode(T transformation, NormalNode<P, M, T> linkedNode) {
+    this.transformation = transformation;
+    this.linkedNode = linkedNode;
+  }
+
+  @Override
+  public T getTransformation() {
+    return transformation;
+  }
+
+  @Override
+  public NormalNode<P, M, T> getLinkedNode() {
+    return linkedNode;
+  }
+}
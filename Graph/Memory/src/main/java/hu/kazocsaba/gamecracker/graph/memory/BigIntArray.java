@@ -0,0 +1,51 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of {@code int} values, indexed by {@code long}. The elements are stored in
+ * fixed-size pages, so the array can hold more than {@link Integer#MAX_VALUE} elements, and growing
+ * it never copies the existing elements. New elements are initialized to zero.
+ *
+ * @author Kazó Csaba
+ */
+final class BigIntArray {
+
+  private static final int PAGE_SHIFT = 14;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private int[][] pages = new int[16][];
+  private int pageCount;
+
+  /**
+   * Makes sure that elements with index less than {@code length} are accessible.
+   *
+   * @param length the required length
+   */
+  void ensureCapacity(long length) {
+    while ((long) pageCount << PAGE_SHIFT < length) {
+      if (pageCount == pages.length) {
+        pages = Arrays.copyOf(pages, 2 * pageCount);
+      }
+      pages[pageCount++] = new int[PAGE_SIZE];
+    }
+  }
+
+  /**
+   * Returns the number of bytes allocated for the elements.
+   *
+   * @return the allocated size in bytes
+   */
+  long getAllocatedBytes() {
+    return (long) pageCount * PAGE_SIZE * Integer.BYTES;
+  }
+
+  int get(long index) {
+    return pages[(int) (index >>> PAGE_SHIFT)][(int) index & PAGE_MASK];
+  }
+
+  void set(long index, int value) {
+    pages[(int) (index >>> PAGE_SHIFT)][(int) index & PAGE_MASK] = value;
+  }
+}
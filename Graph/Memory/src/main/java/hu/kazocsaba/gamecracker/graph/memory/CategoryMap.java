@@ -0,0 +1,83 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+/**
+ * A hash map from {@code long} categories to objects. It uses open addressing with linear probing
+ * on parallel arrays, so neither the lookup nor the insertion boxes the key, and no entry objects
+ * are allocated. Null values are not supported; a {@code null} value marks a free slot.
+ *
+ * @param <V> the value type
+ * @author Kazó Csaba
+ */
+final class CategoryMap<V> {
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+  private int mask;
+
+  /**
+   * Creates an empty map.
+   */
+  CategoryMap() {
+    keys = new long[16];
+    values = new Object[16];
+    mask = 15;
+  }
+
+  private static int hash(long category) {
+    long h = category * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Returns the value associated with a category.
+   *
+   * @param category the category
+   * @return the value of the category, or {@code null} if the category is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  V get(long category) {
+    for (int slot = hash(category) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == category) {
+        return (V) values[slot];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a new category to the map. The category must not already be present.
+   *
+   * @param category the category
+   * @param value the value of the category, not {@code null}
+   */
+  void putNew(long category, V value) {
+    if (2 * (size + 1) > values.length) {
+      grow();
+    }
+    insert(category, value);
+    size++;
+  }
+
+  private void insert(long category, Object value) {
+    int slot = hash(category) & mask;
+    while (values[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = category;
+    values[slot] = value;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[2 * oldKeys.length];
+    values = new Object[2 * oldValues.length];
+    mask = values.length - 1;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        insert(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+}
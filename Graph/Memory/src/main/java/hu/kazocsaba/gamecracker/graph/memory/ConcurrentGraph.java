@@ -0,0 +1,210 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.DefaultGraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory Graph implementation that can be expanded from multiple threads at the same time.
+ * Matches created by {@link #createMatch()} can be used concurrently from different threads (a
+ * single match is still not thread-safe).
+ *
+ * <p>The normal nodes are indexed by category like in {@link MemoryGraph}, but the index is split
+ * into stripes by the category, and each stripe has its own lock. Since equivalent positions have
+ * the same category, looking up and adding a node only needs the lock of the stripe containing its
+ * category, and the threads working on different categories do not block each other. A child
+ * slot is set by compare-and-set, so every move leads to a single node even if several threads
+ * expand it at the same time. The results are propagated without locking, see
+ * {@link ConcurrentNode}.
+ *
+ * <p>A change of a result is visible before it is propagated to the ancestors: a thread can see a
+ * known result on all children of a node while the node itself is still being updated by the
+ * thread that made the last child known. Once all threads stopped expanding the graph, the result
+ * of every node is consistent with its children.
+ *
+ * @author Kazó Csaba
+ */
+public class ConcurrentGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends Graph<P, M, T> {
+
+  final Game<P, M, T> game;
+  final ConcurrentNormalNode<P, M, T> root;
+  private final AtomicInteger size = new AtomicInteger();
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+  /**
+   * The stripes of the node index. Each stripe maps the categories assigned to it to the normal
+   * nodes of the category; the map also serves as the lock of the stripe.
+   */
+  private final CategoryMap<NodeBucket<ConcurrentNormalNode<P, M, T>>>[] stripes;
+  private final int stripeShift;
+  /**
+   * The work lists of the result propagation, one for each thread expanding the graph. A work list
+   * is empty between propagations, and it is reused by every propagation of its thread.
+   */
+  private final ThreadLocal<NodeStack<ConcurrentNode<P, M, T>>> workLists =
+      new ThreadLocal<NodeStack<ConcurrentNode<P, M, T>>>() {
+        @Override
+        protected NodeStack<ConcurrentNode<P, M, T>> initialValue() {
+          return new NodeStack<>();
+        }
+      };
+
+  /**
+   * Creates a new graph with a number of lock stripes suitable for the available processors.
+   *
+   * @param game the game whose positions the graph will contain
+   */
+  public ConcurrentGraph(Game<P, M, T> game) {
+    this(game, 4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a new graph.
+   *
+   * @param game the game whose positions the graph will contain
+   * @param concurrencyLevel the estimated number of threads expanding the graph at the same time;
+   *     the number of lock stripes is at least this value
+   * @throws IllegalArgumentException if {@code concurrencyLevel} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentGraph(Game<P, M, T> game, int concurrencyLevel) {
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("Invalid concurrency level: " + concurrencyLevel);
+    }
+    this.game = Objects.requireNonNull(game);
+    keyFunction = InvariantKeyFunction.forGame(game);
+    int stripeBits = 0;
+    while (stripeBits < 16 && (1 << stripeBits) < concurrencyLevel) {
+      stripeBits++;
+    }
+    stripes = new CategoryMap[1 << stripeBits];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new CategoryMap<>();
+    }
+    stripeShift = 64 - stripeBits;
+    root = new ConcurrentNormalNode<>(this, game.getInitialPosition());
+    size.set(1);
+  }
+
+  @Override
+  public Game<P, M, T> getGame() {
+    return game;
+  }
+
+  private CategoryMap<NodeBucket<ConcurrentNormalNode<P, M, T>>> getStripe(long category) {
+    if (stripes.length == 1) {
+      return stripes[0];
+    }
+    /*
+     * The stripe is selected by the high bits of the mixed category, the category map itself uses
+     * the low bits.
+     */
+    return stripes[(int) ((category * 0x9E3779B97F4A7C15L) >>> stripeShift)];
+  }
+
+  ConcurrentNode<P, M, T> getNextNode(ConcurrentNormalNode<P, M, T> node, M move) {
+    int moveIndex = node.position.getMoveIndex(move);
+    if (moveIndex == -1) {
+      throw new IllegalArgumentException(String.format("Move %s is not valid", move));
+    }
+    ConcurrentNode<P, M, T> child = node.getChild(moveIndex);
+    if (child != null) {
+      return child;
+    }
+    P nextPosition = node.position.moveByIndex(moveIndex);
+    long category = game.getCategoryFunction().category(nextPosition);
+    int key = keyFunction.key(nextPosition);
+
+    ConcurrentNode<P, M, T> newNode;
+    CategoryMap<NodeBucket<ConcurrentNormalNode<P, M, T>>> stripe = getStripe(category);
+    synchronized (stripe) {
+      newNode = findOrAdd(stripe, category, key, nextPosition);
+    }
+
+    if (!node.setChild(moveIndex, newNode)) {
+      /*
+       * Another thread has expanded the same move in the meantime. It has found or created the same
+       * node, since the lookup of the position is serialized by the stripe lock.
+       */
+      child = node.getChild(moveIndex);
+      if (child != newNode) {
+        throw new AssertionError("Duplicate node for " + nextPosition);
+      }
+      return child;
+    }
+    /*
+     * Hook up the node to its new parent, then recompute the results. The new node is recomputed
+     * first, since a new transformation node does not have its result yet.
+     */
+    newNode.addParent(node);
+    NodeStack<ConcurrentNode<P, M, T>> workList = workLists.get();
+    workList.push(node);
+    workList.push(newNode);
+    while (!workList.isEmpty()) {
+      workList.pop().recompute(workList);
+    }
+    return newNode;
+  }
+
+  /**
+   * Returns the node containing a position, adding it to the graph if necessary. It must be called
+   * with the lock of the stripe of the category held.
+   */
+  private ConcurrentNode<P, M, T> findOrAdd(
+      CategoryMap<NodeBucket<ConcurrentNormalNode<P, M, T>>> stripe,
+      long category, int key, P position) {
+    NodeBucket<ConcurrentNormalNode<P, M, T>> bucket = stripe.get(category);
+    if (bucket == null) {
+      bucket = new NodeBucket<>();
+      stripe.putNew(category, bucket);
+    } else {
+      for (int slot = bucket.firstSlot(key); slot != -1; slot = bucket.nextSlot(key, slot)) {
+        ConcurrentNormalNode<P, M, T> candidate = bucket.getNode(slot);
+        T trans = position.getTransformationTo(candidate.position);
+        if (trans != null) {
+          if (trans.isIdentity()) {
+            return candidate;
+          }
+          /*
+           * Transformation nodes of the candidate are only created while holding the lock of this
+           * stripe, so if the position is not among its parents now, it cannot be added
+           * concurrently.
+           */
+          ConcurrentNode<P, M, T> transformationNode = candidate.findTransformationParent(position);
+          if (transformationNode == null) {
+            transformationNode = new ConcurrentTransformationNode<>(trans, candidate, position);
+            size.incrementAndGet();
+          }
+          return transformationNode;
+        }
+      }
+    }
+    ConcurrentNormalNode<P, M, T> newNode = new ConcurrentNormalNode<>(this, position);
+    bucket.add(key, newNode);
+    size.incrementAndGet();
+    return newNode;
+  }
+
+  /**
+   * Returns the number of nodes in the graph.
+   *
+   * @return the number of normal and transformation nodes
+   */
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public GraphMatch<P, M, T> createMatch() {
+    return new DefaultGraphMatch<>(root.position, root, game.getIdentityTransformation());
+  }
+}
@@ -0,0 +1,137 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A node of a {@link ConcurrentGraph}. The node is updated without locking: the result is stored in
+ * an {@code int} word updated by compare-and-set, and the parents form a lock-free stack.
+ *
+ * <p>The result of a node only ever changes to a result {@linkplain GraphResult#refines refining}
+ * it, that is, from {@code UNKNOWN} to a won't win result, and from there to a known result, so a
+ * result word never returns to a previous value. A thread recomputing the result reads the result
+ * word, computes the new result from the children, and writes it with compare-and-set. If the word
+ * was changed by another thread in the meantime, the computation is repeated; the children read
+ * after the change are at least as up-to-date as the ones the other thread used.
+ *
+ * @author Kazó Csaba
+ */
+abstract class ConcurrentNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements Node<P, M, T> {
+
+  private static final GraphResult[] RESULTS = GraphResult.values();
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<ConcurrentNode> RESULT_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(ConcurrentNode.class, "resultWord");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<ConcurrentNode, Edge> PARENTS_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(ConcurrentNode.class, Edge.class, "parents");
+
+  /**
+   * An element of the parent stack of a node.
+   */
+  static final class Edge<
+      P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>> {
+    final ConcurrentNode<P, M, T> parent;
+    final Edge<P, M, T> next;
+
+    Edge(ConcurrentNode<P, M, T> parent, Edge<P, M, T> next) {
+      this.parent = parent;
+      this.next = next;
+    }
+  }
+
+  final P position;
+  /** The ordinal of the result of the node. */
+  private volatile int resultWord;
+  /** The top of the parent stack; edges are only ever pushed. */
+  private volatile Edge<P, M, T> parents;
+
+  ConcurrentNode(P position, GraphResult result) {
+    this.position = Objects.requireNonNull(position);
+    resultWord = result.ordinal();
+  }
+
+  /**
+   * Returns the current result of this node.
+   *
+   * @return the result of this node
+   */
+  final GraphResult result() {
+    return RESULTS[resultWord];
+  }
+
+  /**
+   * Returns the top of the parent stack. The stack can be traversed without locking, but it does
+   * not include the parents added after this call.
+   *
+   * @return the most recently added parent edge, or {@code null} if there are no parents
+   */
+  final Edge<P, M, T> parents() {
+    return parents;
+  }
+
+  /**
+   * Registers a parent of this node. Changes to the result of this node made after this method
+   * returns are propagated to the parent.
+   *
+   * @param parent the new parent
+   */
+  final void addParent(ConcurrentNode<P, M, T> parent) {
+    Edge<P, M, T> top;
+    do {
+      top = parents;
+    } while (!PARENTS_UPDATER.compareAndSet(this, top, new Edge<>(parent, top)));
+  }
+
+  /**
+   * Recomputes the result of this node, and if it changes, adds the parents to the work list.
+   *
+   * <p>The result is written before the parents are read, and a parent is registered before it
+   * reads the result of its child, so a parent either sees the new result when it is registered, or
+   * gets recomputed.
+   *
+   * @param workList the nodes whose result needs to be recomputed
+   */
+  final void recompute(NodeStack<ConcurrentNode<P, M, T>> workList) {
+    while (true) {
+      int word = resultWord;
+      GraphResult current = RESULTS[word];
+      if (current.isKnown()) {
+        return;
+      }
+      GraphResult newResult = computeResult();
+      if (newResult == current) {
+        if (resultWord == word) {
+          return;
+        }
+      } else if (newResult.refines(current)
+          && RESULT_UPDATER.compareAndSet(this, word, newResult.ordinal())) {
+        for (Edge<P, M, T> edge = parents; edge != null; edge = edge.next) {
+          workList.push(edge.parent);
+        }
+        return;
+      }
+      /*
+       * Another thread has changed the result while we were computing it, or the children we read
+       * were older than the ones the current result was computed from. Either way, we try again.
+       */
+    }
+  }
+
+  /**
+   * Computes the result of this node from the current results of its children (or of its linked
+   * node).
+   *
+   * @return the result of this node according to the current state of the graph
+   */
+  abstract GraphResult computeResult();
+}
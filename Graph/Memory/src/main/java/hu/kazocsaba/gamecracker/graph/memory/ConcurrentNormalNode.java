@@ -0,0 +1,116 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+class ConcurrentNormalNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends ConcurrentNode<P, M, T> implements NormalNode<P, M, T> {
+
+  private final ConcurrentGraph<P, M, T> graph;
+  /** The children of the node; a slot is set at most once, from {@code null} to the child. */
+  private final AtomicReferenceArray<ConcurrentNode<P, M, T>> children;
+  /** The player to move, or {@code null} if the position is final. */
+  private final Player player;
+
+  ConcurrentNormalNode(ConcurrentGraph<P, M, T> graph, P position) {
+    this(graph, position, position.getMoveCount(), position.getStatus());
+  }
+
+  private ConcurrentNormalNode(
+      ConcurrentGraph<P, M, T> graph, P position, int childCount, GameStatus status) {
+    super(position, initialResult(childCount, status));
+    this.graph = Objects.requireNonNull(graph);
+    player = status.isFinal() ? null : status.getCurrentPlayer();
+    children = new AtomicReferenceArray<>(childCount);
+  }
+
+  private static GraphResult initialResult(int childCount, GameStatus status) {
+    if (childCount == 0) {
+      if (!status.isFinal()) {
+        throw new AssertionError("Non-final position has no valid moves");
+      }
+      return GraphResult.from(status);
+    } else {
+      if (status.isFinal()) {
+        throw new AssertionError("Final position has valid moves");
+      }
+      return GraphResult.UNKNOWN;
+    }
+  }
+
+  @Override
+  public GraphResult getResult() {
+    return result();
+  }
+
+  @Override
+  public Node<P, M, T> getNextNode(M move) {
+    return graph.getNextNode(this, move);
+  }
+
+  /**
+   * Sets a child of this node, unless another thread has already set it.
+   *
+   * @param index the index of the move leading to the child
+   * @param node the child node
+   * @return {@code true} if the child was set, {@code false} if the slot was already taken
+   */
+  boolean setChild(int index, ConcurrentNode<P, M, T> node) {
+    return children.compareAndSet(index, null, node);
+  }
+
+  /**
+   * Returns the transformation node parent of this node containing a position, if there is one.
+   *
+   * @param position the position
+   * @return the transformation node containing {@code position}, or {@code null}
+   */
+  ConcurrentTransformationNode<P, M, T> findTransformationParent(P position) {
+    for (Edge<P, M, T> edge = parents(); edge != null; edge = edge.next) {
+      ConcurrentNode<P, M, T> parent = edge.parent;
+      if (parent instanceof ConcurrentTransformationNode && parent.position.equals(position)) {
+        return (ConcurrentTransformationNode<P, M, T>) parent;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  GraphResult computeResult() {
+    /*
+     * The children are scanned instead of maintaining counts of their results: the changes of
+     * different children are reported by different threads, so a count update could be applied out
+     * of order, and the counts could not be updated together with the result word. The scan always
+     * sees the latest result of every child.
+     */
+    GraphResultComputer resultComputer = GraphResultComputer.start(player);
+    for (int i = 0; i < children.length(); i++) {
+      ConcurrentNode<P, M, T> n = children.get(i);
+      resultComputer = resultComputer.withMove(n == null ? GraphResult.UNKNOWN : n.result());
+    }
+    return resultComputer.get();
+  }
+
+  public int getChildCount() {
+    return children.length();
+  }
+
+  public ConcurrentNode<P, M, T> getChild(int index) {
+    return children.get(index);
+  }
+}
@@ -0,0 +1,50 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+import hu.kazocsaba.gamecracker.graph.base.TransformationNode;
+
+import java.util.Objects;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+class ConcurrentTransformationNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends ConcurrentNode<P, M, T> implements TransformationNode<P, M, T> {
+
+  final T transformation;
+  final ConcurrentNormalNode<P, M, T> linkedNode;
+
+  /**
+   * Creates a transformation node and registers it as a parent of its linked node. The result of
+   * the node is unknown until it is first recomputed.
+   */
+  ConcurrentTransformationNode(
+      T transformation, ConcurrentNormalNode<P, M, T> linkedNode, P position) {
+    super(position, GraphResult.UNKNOWN);
+    this.transformation = Objects.requireNonNull(transformation);
+    this.linkedNode = Objects.requireNonNull(linkedNode);
+    linkedNode.addParent(this);
+  }
+
+  @Override
+  GraphResult computeResult() {
+    GraphResult linkedResult = linkedNode.result();
+    return transformation.isPlayerSwitching() ? linkedResult.getOther() : linkedResult;
+  }
+
+  @Override
+  public T getTransformation() {
+    return transformation;
+  }
+
+  @Override
+  public NormalNode<P, M, T> getLinkedNode() {
+    return linkedNode;
+  }
+}
@@ -6,12 +6,11 @@ import hu.kazocsaba.gamecracker.game.Position;
 import hu.kazocsaba.gamecracker.game.Transformation;
 import hu.kazocsaba.gamecracker.graph.Graph;
 import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
 import hu.kazocsaba.gamecracker.graph.base.DefaultGraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -26,10 +25,27 @@ public class MemoryGraph<
   final Game<P, M, T> game;
   final MemoryNormalNode<P, M, T> root;
   private int size;
-  private final Map<Long, List<MemoryNormalNode<P, M, T>>> categories = new HashMap<>();
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+  /**
+   * The normal nodes of the graph, indexed by their category and the invariant key of their
+   * position. Only nodes with the same category and key can contain equivalent positions.
+   */
+  private final CategoryMap<NodeBucket<MemoryNormalNode<P, M, T>>> categories =
+      new CategoryMap<>();
+
+  /**
+   * The work list of the result propagation: the nodes whose result needs to be recomputed. A node
+   * is in the list at most once, which is tracked by its {@code queued} flag. The array is reused
+   * by every propagation.
+   */
+  private Object[] workList = new Object[64];
+  private long propagations;
+  private long nodesVisited;
+  private int maxFrontier;
 
   public MemoryGraph(Game<P, M, T> game) {
     this.game = Objects.requireNonNull(game);
+    keyFunction = InvariantKeyFunction.forGame(game);
     root = new MemoryNormalNode<>(this, game.getInitialPosition());
     size = 1;
   }
@@ -40,35 +56,37 @@ public class MemoryGraph<
   }
 
   MemoryNode<P, M, T> getNextNode(MemoryNormalNode<P, M, T> node, M move) {
-    int moveIndex = node.position.getMoves().indexOf(move);
+    int moveIndex = node.position.getMoveIndex(move);
     if (moveIndex == -1) {
       throw new IllegalArgumentException(String.format("Move %s is not valid", move));
     }
     if (node.getChild(moveIndex) != null) {
       return node.getChild(moveIndex);
     }
-    P nextPosition = node.position.move(move);
+    P nextPosition = node.position.moveByIndex(moveIndex);
     long category = game.getCategoryFunction().category(nextPosition);
+    int key = keyFunction.key(nextPosition);
 
     /*
-     * We search the category list of the category of the new position, and try to find an
+     * We search the nodes with the same category and key as the new position, and try to find an
      * equivalent position.
      */
     MemoryNode<P, M, T> newNode = null;
-    List<MemoryNormalNode<P, M, T>> categoryList = categories.get(category);
-    if (categoryList == null) {
+    NodeBucket<MemoryNormalNode<P, M, T>> bucket = categories.get(category);
+    if (bucket == null) {
       /*
        * This is a brand new category, there can be no match; we will need a new NormalNode.
        */
-      categoryList = new ArrayList<>(4);
-      categories.put(category, categoryList);
+      bucket = new NodeBucket<>();
+      categories.putNew(category, bucket);
     } else {
       MemoryNormalNode<P, M, T> match = null;
       T trans = null;
-      for (MemoryNormalNode<P, M, T> chainNode : categoryList) {
-        trans = nextPosition.getTransformationTo(chainNode.position);
+      for (int slot = bucket.firstSlot(key); slot != -1; slot = bucket.nextSlot(key, slot)) {
+        MemoryNormalNode<P, M, T> candidate = bucket.getNode(slot);
+        trans = nextPosition.getTransformationTo(candidate.position);
         if (trans != null) {
-          match = chainNode;
+          match = candidate;
           break;
         }
       }
@@ -114,7 +132,7 @@ public class MemoryGraph<
        */
       MemoryNormalNode<P, M, T> newNormalNode = new MemoryNormalNode<>(this, nextPosition);
       newNode = newNormalNode;
-      categoryList.add(newNormalNode);
+      bucket.add(key, newNormalNode);
       size++;
     }
     /*
@@ -126,6 +144,54 @@ public class MemoryGraph<
     return newNode;
   }
 
+  /**
+   * Recomputes the result of a node, and if it changes, the results of its ancestors.
+   *
+   * @param start the node whose result may have changed
+   */
+  @SuppressWarnings("unchecked")
+  void recomputeResults(MemoryNode<P, M, T> start) {
+    propagations++;
+    int size = 0;
+    start.queued = true;
+    workList[size++] = start;
+    while (size > 0) {
+      MemoryNode<P, M, T> node = (MemoryNode<P, M, T>) workList[--size];
+      workList[size] = null;
+      node.queued = false;
+      nodesVisited++;
+      if (node.result.isKnown()) {
+        continue;
+      }
+      GraphResult newResult = node.computeResult();
+      if (newResult != node.result) {
+        GraphResult oldResult = node.result;
+        node.result = newResult;
+        for (int i = 0; i < node.parents.size(); i++) {
+          MemoryNode<P, M, T> parent = node.parents.get(i);
+          parent.childResultChanged(oldResult, newResult);
+          if (!parent.queued) {
+            if (size == workList.length) {
+              workList = Arrays.copyOf(workList, 2 * size);
+            }
+            parent.queued = true;
+            workList[size++] = parent;
+          }
+        }
+        maxFrontier = Math.max(maxFrontier, size);
+      }
+    }
+  }
+
+  /**
+   * Returns the statistics of the result propagations performed by this graph so far.
+   *
+   * @return the propagation statistics
+   */
+  public PropagationStatistics getPropagationStatistics() {
+    return new PropagationStatistics(propagations, nodesVisited, maxFrontier);
+  }
+
   public int size() {
     return size;
   }
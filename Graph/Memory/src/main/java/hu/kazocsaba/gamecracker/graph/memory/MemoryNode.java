@@ -21,9 +21,27 @@ abstract class MemoryNode<
   final P position;
   List<MemoryNode<P, M, T>> parents = new ArrayList<>(2);
   GraphResult result;
+  /** Whether this node is in the work list of the result propagation. */
+  boolean queued;
 
   MemoryNode(P position) {
     this.position = Objects.requireNonNull(position);
   }
 
+  /**
+   * Computes the result of this node from the current results of its children (or of its linked
+   * node).
+   *
+   * @return the result of this node according to the current state of the graph
+   */
+  abstract GraphResult computeResult();
+
+  /**
+   * Notifies this node that the result of one of its children (or of its linked node) has changed.
+   * It is called once for each occurrence of this node in the parents of the child.
+   *
+   * @param oldResult the previous result of the child
+   * @param newResult the new result of the child
+   */
+  abstract void childResultChanged(GraphResult oldResult, GraphResult newResult);
 }
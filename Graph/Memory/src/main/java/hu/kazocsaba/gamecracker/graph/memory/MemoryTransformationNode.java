@@ -3,6 +3,7 @@ package hu.kazocsaba.gamecracker.graph.memory;
 import hu.kazocsaba.gamecracker.game.Move;
 import hu.kazocsaba.gamecracker.game.Position;
 import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
 import hu.kazocsaba.gamecracker.graph.base.NormalNode;
 import hu.kazocsaba.gamecracker.graph.base.TransformationNode;
 
@@ -25,7 +26,24 @@ class MemoryTransformationNode<
     super(position);
     this.transformation = Objects.requireNonNull(transformation);
     this.linkedNode = Objects.requireNonNull(linkedNode);
-    result = transformation.isPlayerSwitching() ? linkedNode.result.getOther() : linkedNode.result;
+    result = computeResult();
+    /*
+     * The transformation node is a parent of its linked node, so that changes in the result of the
+     * linked node are propagated through it.
+     */
+    linkedNode.parents.add(this);
+  }
+
+  @Override
+  GraphResult computeResult() {
+    return transformation.isPlayerSwitching() ? linkedNode.result.getOther() : linkedNode.result;
+  }
+
+  @Override
+  void childResultChanged(GraphResult oldResult, GraphResult newResult) {
+    /*
+     * Nothing to do, the result is computed from the linked node directly.
+     */
   }
 
   @Override
@@ -0,0 +1,119 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+/**
+ * The normal nodes of a single category, indexed by the invariant keys of their positions. It is a
+ * multimap using open addressing with linear probing on parallel arrays: several nodes can have the
+ * same key, and they are found by walking the probe sequence of the key.
+ *
+ * <p>Candidates for a key are enumerated without allocation:
+ * <pre>
+ * {@code
+ * for (int slot = bucket.firstSlot(key); slot != -1; slot = bucket.nextSlot(key, slot)) {
+ *   N candidate = bucket.getNode(slot);
+ *   ...
+ * }
+ * }</pre>
+ * The slots are only valid until the next call to {@link #add}.
+ *
+ * @param <N> the node type
+ * @author Kazó Csaba
+ */
+final class NodeBucket<N> {
+
+  private int[] keys;
+  private Object[] nodes;
+  private int size;
+  private int mask;
+
+  /**
+   * Creates an empty bucket.
+   */
+  NodeBucket() {
+    keys = new int[2];
+    nodes = new Object[2];
+    mask = 1;
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the first slot containing a node with the specified key.
+   *
+   * @param key the invariant key
+   * @return the index of the slot, or -1 if there is no node with this key
+   */
+  int firstSlot(int key) {
+    return scan(key, hash(key) & mask);
+  }
+
+  /**
+   * Returns the next slot containing a node with the specified key.
+   *
+   * @param key the invariant key
+   * @param slot the previous slot returned for {@code key}
+   * @return the index of the next slot, or -1 if there are no more nodes with this key
+   */
+  int nextSlot(int key, int slot) {
+    return scan(key, (slot + 1) & mask);
+  }
+
+  private int scan(int key, int slot) {
+    while (nodes[slot] != null) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the node in a slot.
+   *
+   * @param slot a slot returned by {@link #firstSlot} or {@link #nextSlot}
+   * @return the node in the slot
+   */
+  @SuppressWarnings("unchecked")
+  N getNode(int slot) {
+    return (N) nodes[slot];
+  }
+
+  /**
+   * Adds a node to this bucket.
+   *
+   * @param key the invariant key of the node's position
+   * @param node the node
+   */
+  void add(int key, N node) {
+    if (2 * (size + 1) > nodes.length) {
+      grow();
+    }
+    insert(key, node);
+    size++;
+  }
+
+  private void insert(int key, Object node) {
+    int slot = hash(key) & mask;
+    while (nodes[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    nodes[slot] = node;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    Object[] oldNodes = nodes;
+    keys = new int[2 * oldKeys.length];
+    nodes = new Object[2 * oldNodes.length];
+    mask = nodes.length - 1;
+    for (int i = 0; i < oldNodes.length; i++) {
+      if (oldNodes[i] != null) {
+        insert(oldKeys[i], oldNodes[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+
+/**
+ * An open addressing hash table of the ids of normal nodes, together with the node encoding shared
+ * by {@link ArrayGraph} and {@link RetrogradeGraph}. Those graphs identify their normal nodes by
+ * consecutive {@code int} ids starting from {@link #ROOT}, keep a {@code byte} of flags for each
+ * node, and store the transformations as part of the edges.
+ *
+ * <p>The index stores the hash of every node, and the ids of the nodes in a table with linear
+ * probing. The table is grown when it becomes half full. Nodes with a given hash are found by
+ * probing the slots from {@link #firstSlot} with {@link #nextSlot} until an empty slot:
+ * <pre>
+ * for (long slot = index.firstSlot(hash); index.get(slot) != 0; slot = index.nextSlot(slot)) {
+ *   int candidate = index.get(slot);
+ *   if (index.getHash(candidate) == hash) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Kazó Csaba
+ */
+final class NodeIndex {
+
+  /** The mask of the flag bits containing the ordinal of the GraphResult of the node. */
+  static final int RESULT_MASK = 0x07;
+  /** The flag bit set if black moves in the position of the node. */
+  static final int BLACK_MOVES_FLAG = 0x08;
+
+  /** The id of the root node. Id 0 is unused, so that 0 can mark a missing edge or an empty slot. */
+  static final int ROOT = 1;
+  static final GraphResult[] RESULTS = GraphResult.values();
+
+  private static final int TRANSFORMATION_BITS = 8;
+
+  private final BigIntArray hashes = new BigIntArray();
+  private BigIntArray slots = new BigIntArray();
+  private long mask;
+  private int lastId;
+
+  /**
+   * Creates an empty index.
+   */
+  NodeIndex() {
+    slots.ensureCapacity(1024);
+    mask = 1023;
+  }
+
+  /**
+   * Returns the transformations of a game, indexed by their ordinal.
+   *
+   * @param game the game
+   * @return the transformations of the game
+   * @throws IllegalArgumentException if the transformation type of the game is not an enumeration,
+   * or it has too many constants to fit in an edge
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends Transformation<T>> T[] getTransformations(Game<?, ?, T> game) {
+    T identity = game.getIdentityTransformation();
+    if (!(identity instanceof Enum)) {
+      throw new IllegalArgumentException("The transformations of the game are not enumerable");
+    }
+    T[] transformations = (T[]) ((Enum<?>) identity).getDeclaringClass().getEnumConstants();
+    if (transformations.length > 1 << TRANSFORMATION_BITS) {
+      throw new IllegalArgumentException("The game has too many transformations");
+    }
+    return transformations;
+  }
+
+  /**
+   * Packs the target node and the transformation ordinal of an edge into a {@code long}. Since the
+   * ids are positive, a packed edge is never 0.
+   *
+   * @param node the id of the node the edge leads to
+   * @param transformation the ordinal of the transformation of the edge
+   * @return the packed edge
+   */
+  static long packEdge(int node, int transformation) {
+    return (long) node << TRANSFORMATION_BITS | transformation;
+  }
+
+  static int edgeNode(long edge) {
+    return (int) (edge >>> TRANSFORMATION_BITS);
+  }
+
+  static int edgeTransformation(long edge) {
+    return (int) edge & ((1 << TRANSFORMATION_BITS) - 1);
+  }
+
+  /**
+   * Returns the number of bytes allocated for the hashes and the table.
+   *
+   * @return the allocated size in bytes
+   */
+  long getAllocatedBytes() {
+    return hashes.getAllocatedBytes() + slots.getAllocatedBytes();
+  }
+
+  /**
+   * Adds a node to the index. The nodes must be added in the order of their ids, starting from
+   * {@link #ROOT}.
+   *
+   * @param id the id of the node
+   * @param hash the hash of the node
+   */
+  void add(int id, int hash) {
+    if (id != lastId + 1) {
+      throw new AssertionError("Nodes must be added in the order of their ids");
+    }
+    lastId = id;
+    hashes.ensureCapacity(id + 1L);
+    hashes.set(id, hash);
+    if (2L * (id + 1) > mask + 1) {
+      grow();
+    }
+    insert(id, hash);
+  }
+
+  /**
+   * Returns the hash of a node.
+   *
+   * @param id the id of a node in the index
+   * @return the hash the node was added with
+   */
+  int getHash(int id) {
+    return hashes.get(id);
+  }
+
+  long firstSlot(int hash) {
+    return hash & mask;
+  }
+
+  long nextSlot(long slot) {
+    return (slot + 1) & mask;
+  }
+
+  /**
+   * Returns the id stored in a slot of the table.
+   *
+   * @param slot the slot
+   * @return the id of the node in the slot, or 0 if the slot is empty
+   */
+  int get(long slot) {
+    return slots.get(slot);
+  }
+
+  private void insert(int id, int hash) {
+    long slot = firstSlot(hash);
+    while (slots.get(slot) != 0) {
+      slot = nextSlot(slot);
+    }
+    slots.set(slot, id);
+  }
+
+  /** Doubles the table, and inserts every node except the last one added. */
+  private void grow() {
+    long capacity = 2 * (mask + 1);
+    slots = new BigIntArray();
+    slots.ensureCapacity(capacity);
+    mask = capacity - 1;
+    for (int id = ROOT; id < lastId; id++) {
+      insert(id, hashes.get(id));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import java.util.Arrays;
+
+/**
+ * A stack of nodes backed by an array. The array grows as needed and is never shrunk, so a stack
+ * can be reused by successive result propagations without allocating.
+ *
+ * @param <N> the type of the nodes
+ * @author Kazó Csaba
+ */
+final class NodeStack<N> {
+
+  private Object[] nodes = new Object[64];
+  private int size;
+
+  /**
+   * Pushes a node onto the stack.
+   *
+   * @param node the node to push
+   */
+  void push(N node) {
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, 2 * size);
+    }
+    nodes[size++] = node;
+  }
+
+  /**
+   * Removes the top node of the stack.
+   *
+   * @return the node removed from the top
+   * @throws IllegalStateException if the stack is empty
+   */
+  @SuppressWarnings("unchecked")
+  N pop() {
+    if (size == 0) {
+      throw new IllegalStateException("Stack is empty");
+    }
+    N node = (N) nodes[--size];
+    // do not keep the node reachable
+    nodes[size] = null;
+    return node;
+  }
+
+  /**
+   * Returns whether the stack is empty.
+   *
+   * @return {@code true} if the stack contains no nodes
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,55 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+/**
+ * Statistics of the result propagation of a graph. When a node is attached to a parent whose
+ * result is not known, the results of the parent and its ancestors are recomputed; this is one
+ * propagation. Instances of this class are immutable snapshots.
+ *
+ * @author Kazó Csaba
+ */
+public final class PropagationStatistics {
+
+  private final long propagations;
+  private final long nodesVisited;
+  private final int maxFrontier;
+
+  PropagationStatistics(long propagations, long nodesVisited, int maxFrontier) {
+    this.propagations = propagations;
+    this.nodesVisited = nodesVisited;
+    this.maxFrontier = maxFrontier;
+  }
+
+  /**
+   * Returns the number of propagations.
+   *
+   * @return the number of propagations
+   */
+  public long getPropagations() {
+    return propagations;
+  }
+
+  /**
+   * Returns the number of nodes taken from the work list in all propagations. A node is counted
+   * once each time it is visited.
+   *
+   * @return the number of visited nodes
+   */
+  public long getNodesVisited() {
+    return nodesVisited;
+  }
+
+  /**
+   * Returns the largest number of nodes waiting in the work list at any time.
+   *
+   * @return the maximum size of the frontier
+   */
+  public int getMaxFrontier() {
+    return maxFrontier;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d propagations, %d nodes visited, max frontier %d",
+        propagations, nodesVisited, maxFrontier);
+  }
+}
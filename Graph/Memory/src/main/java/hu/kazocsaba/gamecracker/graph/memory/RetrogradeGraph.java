@@ -0,0 +1,285 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.GameStatus;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultCounts;
+import hu.kazocsaba.gamecracker.graph.base.DefaultGraphMatch;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A graph solved by retrograde analysis. When the graph is created, all positions reachable from
+ * the initial position are enumerated, equivalent positions being merged into a single node, and
+ * then the results are computed backwards, starting from the final positions. The graph is
+ * therefore complete and solved from the start; navigating it through the Graph API never adds
+ * nodes.
+ *
+ * <p>Retrograde analysis needs the whole state space of the game in memory, but it is much faster
+ * than expanding the graph forwards: every node is created exactly once, and instead of recomputing
+ * the result of a node from all of its children whenever one of them changes, the results of the
+ * children are counted with {@link GraphResultCounts}, so each edge is processed only once.
+ *
+ * <p>Like {@link ArrayGraph}, the graph stores the normal nodes in parallel arrays indexed by
+ * {@code int} ids, and the transformations as part of the edges. The transformation type of the
+ * game must be an enumeration.
+ *
+ * @author Kazó Csaba
+ */
+public class RetrogradeGraph<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    extends Graph<P, M, T> {
+
+  final Game<P, M, T> game;
+  private final InvariantKeyFunction<P, M, T> keyFunction;
+  /** The transformations of the game, indexed by their ordinal. */
+  private final T[] transformations;
+
+  /* Node properties. Node 0 is unused, so that 0 can mark an empty slot of the index. */
+  private final List<P> positions = new ArrayList<>();
+  private final BigByteArray flags = new BigByteArray();
+  /** The start of the child range of each node; the range ends at the start of the next node. */
+  private final BigLongArray childStart = new BigLongArray();
+  /** The start of the parent range of each node; the range ends at the start of the next node. */
+  private final BigLongArray parentStart = new BigLongArray();
+
+  /** The child edges, each packing a child id and a transformation ordinal. */
+  private final BigLongArray children = new BigLongArray();
+  /**
+   * The parent edges, each packing a parent id and the transformation ordinal of the corresponding
+   * child edge. A parent is listed once for each of its edges leading to the node.
+   */
+  private final BigLongArray parents = new BigLongArray();
+
+  /** The hashes of the nodes, and the hash table of the node ids. */
+  private final NodeIndex index = new NodeIndex();
+
+  private int nodeCount;
+  private long childCount;
+
+  /**
+   * Creates the graph of a game, enumerating and solving all positions reachable from its initial
+   * position.
+   *
+   * @param game the game to solve
+   * @throws IllegalArgumentException if the transformation type of the game is not an enumeration
+   */
+  public RetrogradeGraph(Game<P, M, T> game) {
+    this.game = Objects.requireNonNull(game);
+    transformations = NodeIndex.getTransformations(game);
+    keyFunction = InvariantKeyFunction.forGame(game);
+
+    nodeCount = 1;
+    positions.add(null);
+    childStart.ensureCapacity(2);
+    P root = game.getInitialPosition();
+    newNode(root, hash(root));
+
+    enumerate();
+    linkParents();
+    solve();
+  }
+
+  @Override
+  public Game<P, M, T> getGame() {
+    return game;
+  }
+
+  /**
+   * Returns the number of nodes in the graph. Only the normal nodes are counted; transformation
+   * nodes are stored as part of the edges.
+   *
+   * @return the number of normal nodes
+   */
+  public int size() {
+    return nodeCount - 1;
+  }
+
+  @Override
+  public GraphMatch<P, M, T> createMatch() {
+    RetrogradeNormalNode<P, M, T> root = new RetrogradeNormalNode<>(this, NodeIndex.ROOT);
+    return new DefaultGraphMatch<>(root.getPosition(), root, game.getIdentityTransformation());
+  }
+
+  GraphResult getResult(int id) {
+    return NodeIndex.RESULTS[flags.get(id) & NodeIndex.RESULT_MASK];
+  }
+
+  P getPosition(int id) {
+    return positions.get(id);
+  }
+
+  Node<P, M, T> getNextNode(int id, M move) {
+    int moveIndex = positions.get(id).getMoveIndex(move);
+    if (moveIndex == -1) {
+      throw new IllegalArgumentException(String.format("Move %s is not valid", move));
+    }
+    long edge = children.get(childStart.get(id) + moveIndex);
+    RetrogradeNormalNode<P, M, T> node =
+        new RetrogradeNormalNode<>(this, NodeIndex.edgeNode(edge));
+    T transformation = transformations[NodeIndex.edgeTransformation(edge)];
+    if (transformation.isIdentity()) {
+      return node;
+    }
+    return new ArrayTransformationNode<>(transformation, node);
+  }
+
+  private int hash(P position) {
+    return keyFunction.hash(game.getCategoryFunction().category(position), position);
+  }
+
+  private int newNode(P position, int hash) {
+    if (nodeCount == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many nodes");
+    }
+    GameStatus status = position.getStatus();
+    GraphResult result;
+    int nodeFlags = 0;
+    if (status.isFinal()) {
+      result = GraphResult.from(status);
+    } else {
+      result = GraphResult.UNKNOWN;
+      if (status.getCurrentPlayer() == Player.BLACK) {
+        nodeFlags |= NodeIndex.BLACK_MOVES_FLAG;
+      }
+    }
+    int id = nodeCount++;
+    positions.add(position);
+    flags.ensureCapacity(nodeCount);
+    flags.set(id, (byte) (nodeFlags | result.ordinal()));
+    index.add(id, hash);
+    return id;
+  }
+
+  /**
+   * Creates the nodes of all reachable positions in breadth-first order, and the edges between
+   * them. Since the nodes are expanded in the order of their ids, the child ranges are contiguous.
+   */
+  private void enumerate() {
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      P position = positions.get(id);
+      int moveCount = position.getMoveCount();
+      long edgeIndex = childCount;
+      childCount += moveCount;
+      children.ensureCapacity(childCount);
+      for (int i = 0; i < moveCount; i++) {
+        P nextPosition = position.moveByIndex(i);
+        int hash = hash(nextPosition);
+        int child = 0;
+        T trans = null;
+        for (long slot = index.firstSlot(hash); index.get(slot) != 0;
+            slot = index.nextSlot(slot)) {
+          int candidate = index.get(slot);
+          if (index.getHash(candidate) == hash) {
+            trans = nextPosition.getTransformationTo(positions.get(candidate));
+            if (trans != null) {
+              child = candidate;
+              break;
+            }
+          }
+        }
+        if (child == 0) {
+          child = newNode(nextPosition, hash);
+          trans = game.getIdentityTransformation();
+        }
+        children.set(edgeIndex++, NodeIndex.packEdge(child, ((Enum<?>) trans).ordinal()));
+      }
+      childStart.ensureCapacity(nodeCount + 1);
+      childStart.set(id + 1, childCount);
+    }
+  }
+
+  /**
+   * Fills the parent ranges by counting the edges leading to each node, and then distributing the
+   * edges into the ranges.
+   */
+  private void linkParents() {
+    parentStart.ensureCapacity(nodeCount + 1);
+    parents.ensureCapacity(childCount);
+    /* First the ranges are computed, then their starts are advanced while they are filled. */
+    for (long i = 0; i < childCount; i++) {
+      int child = NodeIndex.edgeNode(children.get(i));
+      parentStart.set(child + 1, parentStart.get(child + 1) + 1);
+    }
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      parentStart.set(id + 1, parentStart.get(id + 1) + parentStart.get(id));
+    }
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      long end = childStart.get(id + 1);
+      for (long i = childStart.get(id); i < end; i++) {
+        long edge = children.get(i);
+        int child = NodeIndex.edgeNode(edge);
+        long slot = parentStart.get(child);
+        parents.set(slot, NodeIndex.packEdge(id, NodeIndex.edgeTransformation(edge)));
+        parentStart.set(child, slot + 1);
+      }
+    }
+    /* Each start has been advanced to the end of its range, which is the start of the next one. */
+    for (int id = nodeCount - 1; id > NodeIndex.ROOT; id--) {
+      parentStart.set(id, parentStart.get(id - 1));
+    }
+    parentStart.set(NodeIndex.ROOT, 0);
+  }
+
+  /**
+   * Propagates the results backwards from the final positions. Each node keeps the counts of the
+   * results of its children; a child is counted once its result is known, and when the counts
+   * determine the result of the node, the node is propagated to its own parents in turn.
+   */
+  private void solve() {
+    BigLongArray counts = new BigLongArray();
+    counts.ensureCapacity(nodeCount);
+    int[] workStack = new int[64];
+    int size = 0;
+    for (int id = NodeIndex.ROOT; id < nodeCount; id++) {
+      if (getResult(id).isKnown()) {
+        if (size == workStack.length) {
+          workStack = Arrays.copyOf(workStack, 2 * size);
+        }
+        workStack[size++] = id;
+      } else {
+        int moveCount = (int) (childStart.get(id + 1) - childStart.get(id));
+        counts.set(id, GraphResultCounts.start(moveCount));
+      }
+    }
+    while (size > 0) {
+      int id = workStack[--size];
+      GraphResult result = getResult(id);
+      long end = parentStart.get(id + 1);
+      for (long i = parentStart.get(id); i < end; i++) {
+        long edge = parents.get(i);
+        int parent = NodeIndex.edgeNode(edge);
+        int parentFlags = flags.get(parent);
+        if (NodeIndex.RESULTS[parentFlags & NodeIndex.RESULT_MASK].isKnown()) {
+          continue;
+        }
+        T transformation = transformations[NodeIndex.edgeTransformation(edge)];
+        GraphResult childResult = transformation.isPlayerSwitching() ? result.getOther() : result;
+        long parentCounts = GraphResultCounts.change(
+            counts.get(parent), GraphResult.UNKNOWN, childResult);
+        counts.set(parent, parentCounts);
+        GraphResult parentResult = GraphResultCounts.get(parentCounts,
+            (parentFlags & NodeIndex.BLACK_MOVES_FLAG) != 0 ? Player.BLACK : Player.WHITE);
+        flags.set(parent,
+            (byte) ((parentFlags & ~NodeIndex.RESULT_MASK) | parentResult.ordinal()));
+        if (parentResult.isKnown()) {
+          if (size == workStack.length) {
+            workStack = Arrays.copyOf(workStack, 2 * size);
+          }
+          workStack[size++] = parent;
+        }
+      }
+    }
+  }
+}
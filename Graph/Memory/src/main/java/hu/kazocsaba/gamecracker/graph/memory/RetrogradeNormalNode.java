@@ -0,0 +1,40 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+
+/**
+ * A view of a node of a {@link RetrogradeGraph}.
+ *
+ * @author Kazó Csaba
+ */
+class RetrogradeNormalNode<
+    P extends Position<P, M, T>, M extends Move<M, T>, T extends Transformation<T>>
+    implements NormalNode<P, M, T> {
+
+  private final RetrogradeGraph<P, M, T> graph;
+  final int id;
+
+  RetrogradeNormalNode(RetrogradeGraph<P, M, T> graph, int id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  P getPosition() {
+    return graph.getPosition(id);
+  }
+
+  @Override
+  public Node<P, M, T> getNextNode(M move) {
+    return graph.getNextNode(id, move);
+  }
+
+  @Override
+  public GraphResult getResult() {
+    return graph.getResult(id);
+  }
+}
@@ -0,0 +1,104 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class ArrayGraphTest extends AbstractGraphTest {
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game) {
+    return new ArrayGraph<>(game);
+  }
+
+  @Test
+  public void testEquivalentPositionsShareNode() {
+    ArrayGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new ArrayGraph<>(new TicTacToe());
+    ArrayNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> root =
+        new ArrayNormalNode<>(graph, 1);
+    Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner1 =
+        root.getNextNode(TicTacToeMove.get(0, 0));
+    Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner2 =
+        root.getNextNode(TicTacToeMove.get(2, 2));
+    Node<TicTacToePosition, TicTacToeMove, SquareSymmetry> center =
+        root.getNextNode(TicTacToeMove.get(1, 1));
+
+    assertTrue(corner1.isNormal());
+    assertFalse(corner2.isNormal());
+    assertEquals(((ArrayNormalNode<?, ?, ?>) corner1).id,
+        ((ArrayNormalNode<?, ?, ?>) corner2.asTransformationNode().getLinkedNode()).id);
+    assertEquals(
+        ((ArrayNormalNode<TicTacToePosition, ?, ?>) corner1).getPosition(),
+        ((ArrayNormalNode<TicTacToePosition, ?, ?>) root).getPosition()
+            .move(TicTacToeMove.get(2, 2))
+            .transform(corner2.asTransformationNode().getTransformation()));
+    assertTrue(center.isNormal());
+    // transformation nodes are not stored
+    assertEquals(3, graph.size());
+  }
+
+  @Test(timeout = 20000)
+  public void testLookupAfterGrowth() {
+    ArrayGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> graph =
+        new ArrayGraph<>(new Reversi6());
+    explore(graph.createMatch(), 7, new HashSet<>());
+    int size = graph.size();
+    // the arrays span several pages and the index has been grown several times
+    assertTrue(size > 5000);
+
+    // every position is found again
+    explore(graph.createMatch(), 7, new HashSet<>());
+    assertEquals(size, graph.size());
+  }
+
+  @Test
+  public void testParentSpaceReclaimed() {
+    ArrayGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new ArrayGraph<>(new TicTacToe());
+    explore(graph.createMatch(), 10, new HashSet<>());
+    // the ranges take less than twice the parent count, and at most a quarter of that is unused
+    assertTrue(graph.getUnusedParentSpace() <= graph.getParentEdgeCount() / 2);
+  }
+
+  @Test
+  public void testBigArray() {
+    BigLongArray array = new BigLongArray();
+    array.ensureCapacity(100000);
+    for (long i = 0; i < 100000; i++) {
+      array.set(i, i * i);
+    }
+    array.ensureCapacity(1000000);
+    for (long i = 0; i < 100000; i++) {
+      assertEquals(i * i, array.get(i));
+    }
+    assertEquals(0, array.get(999999));
+  }
+}
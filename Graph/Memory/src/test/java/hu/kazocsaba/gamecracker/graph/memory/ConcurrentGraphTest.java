@@ -0,0 +1,309 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.base.InvariantKeyFunction;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class ConcurrentGraphTest extends AbstractGraphTest {
+
+  private static final int THREADS = 8;
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game) {
+    return new ConcurrentGraph<>(game);
+  }
+
+  @Test
+  public void testEquivalentPositionsShareNode() {
+    ConcurrentGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+        = new ConcurrentGraph<>(new TicTacToe(), 1);
+    ConcurrentNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner1 =
+        graph.getNextNode(graph.root, TicTacToeMove.get(0, 0));
+    ConcurrentNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner2 =
+        graph.getNextNode(graph.root, TicTacToeMove.get(2, 2));
+
+    assertTrue(corner1.isNormal());
+    assertFalse(corner2.isNormal());
+    assertSame(corner1, corner2.asTransformationNode().getLinkedNode());
+    assertSame(corner2, graph.getNextNode(graph.root, TicTacToeMove.get(2, 2)));
+    assertEquals(3, graph.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConcurrencyLevel() {
+    new ConcurrentGraph<>(new TicTacToe(), 0);
+  }
+
+  @Test(timeout = 60000)
+  public void testConcurrentExpansion() throws Exception {
+    ConcurrentGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> reversiGraph
+        = new ConcurrentGraph<>(new Reversi4(), 2);
+    runConcurrently(new Task() {
+      @Override
+      public void run(long seed) {
+        expand(reversiGraph.root, new Random(seed));
+      }
+    });
+    assertEquals(GraphResult.BLACK_WINS, reversiGraph.root.result());
+    assertEquals(countNormalNodes(new Reversi4()), checkGraph(reversiGraph));
+
+    int tttNormalNodes = countNormalNodes(new TicTacToe());
+    for (int round = 0; round < 10; round++) {
+      ConcurrentGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> tttGraph
+          = new ConcurrentGraph<>(new TicTacToe(), 2);
+      long roundSeed = 31 * round;
+      runConcurrently(new Task() {
+        @Override
+        public void run(long seed) {
+          expand(tttGraph.root, new Random(roundSeed + seed));
+        }
+      });
+      assertEquals(GraphResult.DRAW, tttGraph.root.result());
+      assertEquals(tttNormalNodes, checkGraph(tttGraph));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testConcurrentMatches() throws Exception {
+    for (int round = 0; round < 5; round++) {
+      ConcurrentGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+          = new ConcurrentGraph<>(new Reversi4());
+      runConcurrently(new Task() {
+        @Override
+        public void run(long seed) {
+          solve(graph.createMatch(), new Random(seed));
+        }
+      });
+      assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+      checkGraph(graph);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testResultsOnlyRefine() throws Exception {
+    ConcurrentGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+        = new ConcurrentGraph<>(new Reversi4());
+    /*
+     * One of the threads watches the results of the nodes next to the root while the others are
+     * solving the game.
+     */
+    runConcurrently(new Task() {
+      @Override
+      public void run(long seed) {
+        if (seed != 0) {
+          solve(graph.createMatch(), new Random(seed));
+          return;
+        }
+        GraphResult[] lastResults = new GraphResult[graph.root.getChildCount() + 1];
+        Arrays.fill(lastResults, GraphResult.UNKNOWN);
+        while (!graph.root.result().isKnown()) {
+          for (int i = 0; i < lastResults.length; i++) {
+            ConcurrentNode<?, ?, ?> node = i == 0 ? graph.root : graph.root.getChild(i - 1);
+            if (node != null) {
+              GraphResult result = node.result();
+              assertTrue(lastResults[i] + " changed to " + result,
+                  result.refines(lastResults[i]));
+              lastResults[i] = result;
+            }
+          }
+        }
+      }
+    });
+    assertEquals(GraphResult.BLACK_WINS, graph.root.result());
+    checkGraph(graph);
+  }
+
+  private interface Task {
+    void run(long seed);
+  }
+
+  private static void runConcurrently(Task task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        long seed = i;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            task.run(seed);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Expands every move of the subtree of a node in random order.
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void expand(ConcurrentNormalNode<P, M, T> node, Random random) {
+    expand(node, random, Collections.newSetFromMap(
+        new IdentityHashMap<ConcurrentNode<P, M, T>, Boolean>()));
+  }
+
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void expand(ConcurrentNormalNode<P, M, T> node, Random random,
+        Set<ConcurrentNode<P, M, T>> visited) {
+    if (!visited.add(node)) {
+      return;
+    }
+    List<M> moves = new ArrayList<>(node.position.getMoves());
+    Collections.shuffle(moves, random);
+    for (M move : moves) {
+      ConcurrentNode<P, M, T> child = (ConcurrentNode<P, M, T>) node.getNextNode(move);
+      expand(child.isNormal()
+          ? (ConcurrentNormalNode<P, M, T>) child
+          : ((ConcurrentTransformationNode<P, M, T>) child).linkedNode, random, visited);
+    }
+  }
+
+  /**
+   * Counts the equivalence classes of the reachable positions of a game.
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> int countNormalNodes(Game<P, M, T> game) {
+    MemoryGraph<P, M, T> graph = new MemoryGraph<>(game);
+    Set<MemoryNormalNode<P, M, T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<MemoryNormalNode<P, M, T>> stack = new ArrayDeque<>();
+    stack.push(graph.root);
+    visited.add(graph.root);
+    while (!stack.isEmpty()) {
+      MemoryNormalNode<P, M, T> node = stack.pop();
+      for (M move : node.position.getMoves()) {
+        MemoryNode<P, M, T> child = graph.getNextNode(node, move);
+        MemoryNormalNode<P, M, T> normalChild = child.isNormal()
+            ? (MemoryNormalNode<P, M, T>) child
+            : ((MemoryTransformationNode<P, M, T>) child).linkedNode;
+        if (visited.add(normalChild)) {
+          stack.push(normalChild);
+        }
+      }
+    }
+    return visited.size();
+  }
+
+  /**
+   * Checks that the graph contains no equivalent normal nodes and that the result of every node is
+   * consistent with its children.
+   *
+   * @return the number of normal nodes
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> int checkGraph(ConcurrentGraph<P, M, T> graph) {
+    Set<ConcurrentNode<P, M, T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    InvariantKeyFunction<P, M, T> keyFunction = InvariantKeyFunction.forGame(graph.game);
+    Map<List<Number>, List<P>> categories = new HashMap<>();
+    Deque<ConcurrentNode<P, M, T>> stack = new ArrayDeque<>();
+    stack.push(graph.root);
+    visited.add(graph.root);
+    int normalNodes = 0;
+    while (!stack.isEmpty()) {
+      ConcurrentNode<P, M, T> node = stack.pop();
+      GraphResult expected;
+      if (node instanceof ConcurrentTransformationNode) {
+        ConcurrentTransformationNode<P, M, T> transformationNode =
+            (ConcurrentTransformationNode<P, M, T>) node;
+        expected = transformationNode.transformation.isPlayerSwitching()
+            ? transformationNode.linkedNode.result().getOther()
+            : transformationNode.linkedNode.result();
+        if (visited.add(transformationNode.linkedNode)) {
+          stack.push(transformationNode.linkedNode);
+        }
+      } else {
+        normalNodes++;
+        List<Number> id = Arrays.<Number>asList(
+            graph.game.getCategoryFunction().category(node.position),
+            keyFunction.key(node.position));
+        List<P> candidates = categories.get(id);
+        if (candidates == null) {
+          candidates = new ArrayList<>();
+          categories.put(id, candidates);
+        }
+        for (P other : candidates) {
+          assertNull("Duplicate node for " + node.position,
+              node.position.getTransformationTo(other));
+        }
+        candidates.add(node.position);
+
+        ConcurrentNormalNode<P, M, T> normalNode = (ConcurrentNormalNode<P, M, T>) node;
+        if (normalNode.getChildCount() == 0) {
+          expected = GraphResult.from(node.position.getStatus());
+        } else {
+          GraphResultComputer resultComputer =
+              GraphResultComputer.start(node.position.getStatus().getCurrentPlayer());
+          for (int i = 0; i < normalNode.getChildCount(); i++) {
+            ConcurrentNode<P, M, T> child = normalNode.getChild(i);
+            resultComputer =
+                resultComputer.withMove(child == null ? GraphResult.UNKNOWN : child.result());
+            if (child != null && visited.add(child)) {
+              stack.push(child);
+            }
+          }
+          expected = resultComputer.get();
+        }
+      }
+      assertEquals("Wrong result for " + node.position, expected, node.result());
+    }
+    return normalNodes;
+  }
+}
@@ -0,0 +1,83 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest.solve;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.base.DepthFirstProofNumberSearch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class DepthFirstProofNumberSearchTest {
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() {
+    TicTacToe game = new TicTacToe();
+    for (int tableSize : new int[] {4, 64, 1 << 12}) {
+      DepthFirstProofNumberSearch<TicTacToePosition, TicTacToeMove, SquareSymmetry> search
+          = new DepthFirstProofNumberSearch<>(game, tableSize);
+      assertEquals(GraphResult.DRAW, search.solve(game.getInitialPosition()));
+      assertTrue(search.getExpansions() > 0);
+      assertTrue(search.getTableUsage() <= tableSize);
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() {
+    Reversi4 game = new Reversi4();
+    for (int tableSize : new int[] {4, 64, 1 << 12}) {
+      DepthFirstProofNumberSearch<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> search
+          = new DepthFirstProofNumberSearch<>(game, tableSize);
+      assertFalse(search.prove(game.getInitialPosition(), Player.WHITE));
+      assertTrue(search.prove(game.getInitialPosition(), Player.BLACK));
+      assertEquals(GraphResult.BLACK_WINS, search.solve(game.getInitialPosition()));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testReversi6Endgames() {
+    Reversi6 game = new Reversi6();
+    Random random = new Random(6);
+    for (int round = 0; round < 5; round++) {
+      MemoryGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> referenceGraph
+          = new MemoryGraph<>(game);
+      GraphMatch<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> referenceMatch =
+          referenceGraph.createMatch();
+      for (int i = 0; i < 20 && referenceMatch.getMoveCount() > 0; i++) {
+        referenceMatch.move(random.nextInt(referenceMatch.getMoveCount()));
+      }
+      solve(referenceMatch);
+
+      DepthFirstProofNumberSearch<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> search
+          = new DepthFirstProofNumberSearch<>(game, 1 << 10);
+      assertEquals(referenceMatch.getResult(), search.solve(referenceMatch.getPosition()));
+      assertTrue(search.getTableUsage() <= 1 << 10);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTableSize() {
+    new DepthFirstProofNumberSearch<>(new TicTacToe(), 3);
+  }
+}
@@ -0,0 +1,97 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphSolver;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class GraphSolverTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() {
+    for (int splitDepth = 0; splitDepth <= 4; splitDepth++) {
+      ConcurrentGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+          = new ConcurrentGraph<>(new TicTacToe());
+      assertEquals(GraphResult.DRAW, new GraphSolver(pool, splitDepth).solve(graph));
+      assertEquals(GraphResult.DRAW, graph.root.getResult());
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() {
+    for (int splitDepth = 0; splitDepth <= 4; splitDepth++) {
+      ConcurrentGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+          = new ConcurrentGraph<>(new Reversi4());
+      assertEquals(GraphResult.BLACK_WINS, new GraphSolver(pool, splitDepth).solve(graph));
+      assertEquals(GraphResult.BLACK_WINS, graph.root.getResult());
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testSingleThreadedGraph() {
+    ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+    try {
+      MemoryGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+          = new MemoryGraph<>(new Reversi4());
+      assertEquals(GraphResult.BLACK_WINS, new GraphSolver(singleThreadPool, 2).solve(graph));
+    } finally {
+      singleThreadPool.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 20000)
+  public void testSubtree() {
+    ConcurrentGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+        = new ConcurrentGraph<>(new Reversi4());
+    GraphMatch<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> match =
+        graph.createMatch();
+    Reversi4Move first = match.getMove(0);
+    match.move(0);
+    Reversi4Move second = match.getMove(0);
+
+    GraphResult result = new GraphSolver(pool, 2).solve(graph, Arrays.asList(first, second));
+    assertTrue(result.isKnown());
+    match.move(0);
+    assertEquals(result, match.getResult());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMove() {
+    ConcurrentGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+        = new ConcurrentGraph<>(new TicTacToe());
+    new GraphSolver(pool, 2).solve(
+        graph, Arrays.asList(TicTacToeMove.get(0, 0), TicTacToeMove.get(0, 0)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSplitDepth() {
+    new GraphSolver(pool, -1);
+  }
+}
@@ -1,9 +1,12 @@
 package hu.kazocsaba.gamecracker.graph.memory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
-import hu.kazocsaba.gamecracker.game.Match;
+import hu.kazocsaba.gamecracker.game.Game;
 import hu.kazocsaba.gamecracker.game.Move;
 import hu.kazocsaba.gamecracker.game.Position;
 import hu.kazocsaba.gamecracker.game.SquareSymmetry;
@@ -15,82 +18,173 @@ import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
 import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
 import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
 import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
-import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.Graph;
 import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
 
 import org.junit.Test;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 /**
  *
  * @author Kazó Csaba
  */
-public class MemoryGraphTest {
+public class MemoryGraphTest extends AbstractGraphTest {
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game) {
+    return new MemoryGraph<>(game);
+  }
+
+  @Test
+  public void testEquivalentPositionsShareNode() {
+    MemoryGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+        = new MemoryGraph<>(new TicTacToe());
+    MemoryNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> root = graph.root;
+    MemoryNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner1 =
+        graph.getNextNode(root, TicTacToeMove.get(0, 0));
+    MemoryNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner2 =
+        graph.getNextNode(root, TicTacToeMove.get(2, 2));
+    MemoryNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> center =
+        graph.getNextNode(root, TicTacToeMove.get(1, 1));
+
+    assertTrue(corner1.isNormal());
+    assertFalse(corner2.isNormal());
+    assertSame(corner1, corner2.asTransformationNode().getLinkedNode());
+    assertEquals(corner1.position,
+        corner2.position.transform(corner2.asTransformationNode().getTransformation()));
+    assertTrue(center.isNormal());
+    assertNotSame(corner1, center);
+    assertEquals(4, graph.size());
+  }
 
   @Test(timeout = 5000)
-  public void testTicTacToe() {
+  public void testTransformationNodeResult() {
     MemoryGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
         = new MemoryGraph<>(new TicTacToe());
+    // the transformation node is created while the result of its linked node is unknown
+    graph.getNextNode(graph.root, TicTacToeMove.get(0, 0));
+    MemoryNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> corner =
+        graph.getNextNode(graph.root, TicTacToeMove.get(2, 2));
+    assertFalse(corner.isNormal());
+    assertEquals(GraphResult.UNKNOWN, corner.result);
+
     solve(graph.createMatch());
 
+    assertEquals(GraphResult.DRAW, corner.result);
     assertEquals(GraphResult.DRAW, graph.createMatch().getResult());
   }
 
   @Test(timeout = 5000)
-  public void testReversi() {
+  public void testPropagationStatistics() {
     MemoryGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
         = new MemoryGraph<>(new Reversi4());
+    assertEquals(0, graph.getPropagationStatistics().getPropagations());
     solve(graph.createMatch());
 
-    assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+    PropagationStatistics statistics = graph.getPropagationStatistics();
+    assertTrue(statistics.getPropagations() > 0);
+    assertTrue(statistics.getNodesVisited() >= statistics.getPropagations());
+    assertTrue(statistics.getMaxFrontier() >= 1);
   }
 
-  private static void solve(GraphMatch<?, ?, ?> match) {
-    testMatch(match);
-    if (match.getMoveCount() == 0) {
-      assertTrue(match.getPosition().getStatus().isFinal());
-      assertEquals(match.getPosition().getStatus(), match.getResult().asGameStatus());
-    } else {
-      for (int i = 0; i < match.getMoveCount() && !match.getResult().isKnown(); i++) {
-        match.move(i);
-        solve(match);
-        assertTrue(match.getResult().isKnown());
-        match.back();
+  @Test(timeout = 20000)
+  public void testRandomExpansionResults() {
+    Random random = new Random(8127);
+    for (int round = 0; round < 5; round++) {
+      MemoryGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+          = new MemoryGraph<>(new Reversi4());
+      while (!graph.root.result.isKnown()) {
+        randomWalk(graph, random);
+        checkResults(graph);
       }
+      assertEquals(GraphResult.BLACK_WINS, graph.root.result);
+    }
+    for (int round = 0; round < 5; round++) {
+      MemoryGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+          = new MemoryGraph<>(new TicTacToe());
+      for (int walk = 0; walk < 300; walk++) {
+        randomWalk(graph, random);
+        if (walk % 10 == 0) {
+          checkResults(graph);
+        }
+      }
+      checkResults(graph);
     }
   }
 
+  /**
+   * Walks down from the root along random moves until reaching a final position, creating the
+   * missing nodes on the way.
+   */
   private static <
     P extends Position<P, M, T>,
     M extends Move<M, T>,
-    T extends Transformation<T>> void testMatch(GraphMatch<P, M, T> match) {
-    {
-      List<M> positionReportedMoves = match.getPosition().getMoves();
-      assertEquals(match.getMoveCount(), positionReportedMoves.size());
-      for (int i = 0; i < match.getMoveCount(); i++) {
-        assertEquals(positionReportedMoves.get(i), match.getMove(i));
-      }
+    T extends Transformation<T>> void randomWalk(MemoryGraph<P, M, T> graph, Random random) {
+    MemoryNormalNode<P, M, T> node = graph.root;
+    while (node.getChildCount() > 0) {
+      List<M> moves = node.position.getMoves();
+      MemoryNode<P, M, T> next = graph.getNextNode(node, moves.get(random.nextInt(moves.size())));
+      node = next.isNormal()
+          ? (MemoryNormalNode<P, M, T>) next
+          : ((MemoryTransformationNode<P, M, T>) next).linkedNode;
     }
+  }
 
-    int matchLength = match.getLength();
-    int pointCount = 0;
-
-    Match.Point<P, M, T> lastPoint = null;
-    for (Iterator<Match.Point<P, M, T>> it = match.iterator(); it.hasNext();) {
-      Match.Point<P, M, T> point = it.next();
-      pointCount++;
-
-      if (lastPoint != null) {
-        assertTrue(lastPoint.getPosition().getMoves().contains(lastPoint.getMove()));
-        assertEquals(lastPoint.getPosition().move(lastPoint.getMove()), point.getPosition());
+  /**
+   * Checks the result of every node in the graph against the result computed from scratch by
+   * GraphResultComputer.
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void checkResults(MemoryGraph<P, M, T> graph) {
+    Set<MemoryNode<P, M, T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<MemoryNode<P, M, T>> stack = new ArrayDeque<>();
+    stack.push(graph.root);
+    visited.add(graph.root);
+    while (!stack.isEmpty()) {
+      MemoryNode<P, M, T> node = stack.pop();
+      GraphResult expected;
+      if (node instanceof MemoryTransformationNode) {
+        MemoryTransformationNode<P, M, T> transformationNode =
+            (MemoryTransformationNode<P, M, T>) node;
+        expected = transformationNode.transformation.isPlayerSwitching()
+            ? transformationNode.linkedNode.result.getOther()
+            : transformationNode.linkedNode.result;
+        if (visited.add(transformationNode.linkedNode)) {
+          stack.push(transformationNode.linkedNode);
+        }
+      } else {
+        MemoryNormalNode<P, M, T> normalNode = (MemoryNormalNode<P, M, T>) node;
+        if (normalNode.getChildCount() == 0) {
+          expected = GraphResult.from(node.position.getStatus());
+        } else {
+          GraphResultComputer resultComputer =
+              GraphResultComputer.start(node.position.getStatus().getCurrentPlayer());
+          for (int i = 0; i < normalNode.getChildCount(); i++) {
+            MemoryNode<P, M, T> child = normalNode.getChild(i);
+            resultComputer =
+                resultComputer.withMove(child == null ? GraphResult.UNKNOWN : child.result);
+            if (child != null && visited.add(child)) {
+              stack.push(child);
+            }
+          }
+          expected = resultComputer.get();
+        }
       }
-
-      lastPoint = point;
-      // if there is a move, there should be a next position
-      assertEquals(point.getMove() != null, it.hasNext());
+      assertEquals("Wrong result for " + node.position, expected, node.result);
     }
-    assertEquals(matchLength, pointCount - 1);
   }
 }
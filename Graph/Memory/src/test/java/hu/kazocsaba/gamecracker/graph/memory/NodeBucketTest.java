@@ -0,0 +1,67 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class NodeBucketTest {
+
+  @Test
+  public void testCategoryMap() {
+    CategoryMap<String> map = new CategoryMap<>();
+    for (long category = -1000; category < 1000; category++) {
+      assertNull(map.get(category));
+      map.putNew(category, Long.toString(category));
+    }
+    map.putNew(Long.MIN_VALUE, "min");
+    for (long category = -1000; category < 1000; category++) {
+      assertEquals(Long.toString(category), map.get(category));
+    }
+    assertEquals("min", map.get(Long.MIN_VALUE));
+    assertNull(map.get(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testDuplicateKeys() {
+    MemoryGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new MemoryGraph<>(new TicTacToe());
+    NodeBucket<MemoryNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry>> bucket =
+        new NodeBucket<>();
+    List<MemoryNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry>> nodes =
+        new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      MemoryNormalNode<TicTacToePosition, TicTacToeMove, SquareSymmetry> node =
+          new MemoryNormalNode<>(graph, graph.root.position);
+      nodes.add(node);
+      // keys 0, 1, 2 are shared by many nodes
+      bucket.add(i % 3, node);
+    }
+    for (int key = 0; key < 3; key++) {
+      Set<MemoryNormalNode<?, ?, ?>> found = new HashSet<>();
+      for (int slot = bucket.firstSlot(key); slot != -1; slot = bucket.nextSlot(key, slot)) {
+        found.add(bucket.getNode(slot));
+      }
+      for (int i = key; i < nodes.size(); i += 3) {
+        assertTrue(found.remove(nodes.get(i)));
+      }
+      assertEquals(0, found.size());
+    }
+    assertEquals(-1, bucket.firstSlot(3));
+  }
+}
@@ -0,0 +1,87 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest.solve;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Player;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi6Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.ProofNumberSearch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class ProofNumberSearchTest {
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() {
+    MemoryGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph
+        = new MemoryGraph<>(new TicTacToe());
+    GraphMatch<TicTacToePosition, TicTacToeMove, SquareSymmetry> match = graph.createMatch();
+    ProofNumberSearch search = new ProofNumberSearch();
+
+    assertEquals(GraphResult.DRAW, search.solve(match));
+    assertEquals(0, match.getLength());
+    assertEquals(GraphResult.DRAW, match.getResult());
+    assertTrue(search.getExpansions() > 0);
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() {
+    MemoryGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph
+        = new MemoryGraph<>(new Reversi4());
+    GraphMatch<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> match =
+        graph.createMatch();
+    ProofNumberSearch search = new ProofNumberSearch();
+
+    assertFalse(search.prove(match, Player.WHITE));
+    assertEquals(0, match.getLength());
+    assertFalse(match.getResult().canWin(Player.WHITE));
+    assertTrue(search.prove(match, Player.BLACK));
+    assertEquals(GraphResult.BLACK_WINS, match.getResult());
+  }
+
+  @Test(timeout = 60000)
+  public void testReversi6Endgames() {
+    Random random = new Random(6);
+    for (int round = 0; round < 5; round++) {
+      MemoryGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> graph
+          = new MemoryGraph<>(new Reversi6());
+      MemoryGraph<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> referenceGraph
+          = new MemoryGraph<>(new Reversi6());
+      GraphMatch<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> match =
+          graph.createMatch();
+      GraphMatch<Reversi6Position, Reversi6Move, SwitchableSquareSymmetry> referenceMatch =
+          referenceGraph.createMatch();
+      for (int i = 0; i < 20 && match.getMoveCount() > 0; i++) {
+        int moveIndex = random.nextInt(match.getMoveCount());
+        match.move(moveIndex);
+        referenceMatch.move(moveIndex);
+      }
+      int length = match.getLength();
+
+      GraphResult result = new ProofNumberSearch().solve(match);
+      solve(referenceMatch);
+      assertEquals(referenceMatch.getResult(), result);
+      assertEquals(length, match.getLength());
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package hu.kazocsaba.gamecracker.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.SquareSymmetry;
+import hu.kazocsaba.gamecracker.game.SwitchableSquareSymmetry;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Move;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4Position;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToeMove;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToePosition;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+import hu.kazocsaba.gamecracker.graph.GraphResultComputer;
+import hu.kazocsaba.gamecracker.graph.base.Node;
+import hu.kazocsaba.gamecracker.graph.base.NormalNode;
+import hu.kazocsaba.gamecracker.graph.base.TransformationNode;
+import hu.kazocsaba.gamecracker.graph.testing.AbstractGraphTest;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ *
+ * @author Kazó Csaba
+ */
+public class RetrogradeGraphTest extends AbstractGraphTest {
+
+  @Override
+  protected <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game) {
+    return new RetrogradeGraph<>(game);
+  }
+
+  @Test(timeout = 5000)
+  public void testTicTacToeResults() {
+    RetrogradeGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new RetrogradeGraph<>(new TicTacToe());
+
+    assertEquals(GraphResult.DRAW, graph.createMatch().getResult());
+    assertEquals(expandedSize(new ArrayGraph<>(new TicTacToe())), graph.size());
+    checkResults(graph);
+  }
+
+  @Test(timeout = 5000)
+  public void testReversiResults() {
+    RetrogradeGraph<Reversi4Position, Reversi4Move, SwitchableSquareSymmetry> graph =
+        new RetrogradeGraph<>(new Reversi4());
+
+    assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+    assertEquals(expandedSize(new ArrayGraph<>(new Reversi4())), graph.size());
+    checkResults(graph);
+  }
+
+  @Test(timeout = 5000)
+  public void testMatch() {
+    RetrogradeGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new RetrogradeGraph<>(new TicTacToe());
+    int size = graph.size();
+    GraphMatch<TicTacToePosition, TicTacToeMove, SquareSymmetry> match = graph.createMatch();
+    match.move(TicTacToeMove.get(0, 0));
+    match.move(TicTacToeMove.get(0, 1));
+    // the second player loses after a bad reply
+    assertEquals(GraphResult.WHITE_WINS, match.getResult());
+    match.back();
+    match.move(TicTacToeMove.get(1, 1));
+    assertEquals(GraphResult.DRAW, match.getResult());
+    assertEquals(size, graph.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMove() {
+    RetrogradeGraph<TicTacToePosition, TicTacToeMove, SquareSymmetry> graph =
+        new RetrogradeGraph<>(new TicTacToe());
+    GraphMatch<TicTacToePosition, TicTacToeMove, SquareSymmetry> match = graph.createMatch();
+    match.move(TicTacToeMove.get(0, 0));
+    match.move(TicTacToeMove.get(0, 0));
+  }
+
+  /**
+   * Expands every node of an ArrayGraph and returns its size.
+   */
+  private static int expandedSize(ArrayGraph<?, ?, ?> graph) {
+    explore(graph.createMatch(), Integer.MAX_VALUE, new HashSet<>());
+    return graph.size();
+  }
+
+  /**
+   * Checks that the result of every node is known, and it matches the result computed from its
+   * children by GraphResultComputer.
+   */
+  private static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void checkResults(RetrogradeGraph<P, M, T> graph) {
+    Set<Integer> visited = new HashSet<>();
+    Deque<RetrogradeNormalNode<P, M, T>> stack = new ArrayDeque<>();
+    stack.push(new RetrogradeNormalNode<>(graph, 1));
+    visited.add(1);
+    while (!stack.isEmpty()) {
+      RetrogradeNormalNode<P, M, T> node = stack.pop();
+      P position = node.getPosition();
+      GraphResult result = node.getResult();
+      assertTrue(result.isKnown());
+      if (position.getStatus().isFinal()) {
+        assertEquals(position.getStatus(), result.asGameStatus());
+        continue;
+      }
+      GraphResultComputer resultComputer =
+          GraphResultComputer.start(position.getStatus().getCurrentPlayer());
+      for (M move : position.getMoves()) {
+        Node<P, M, T> child = node.getNextNode(move);
+        NormalNode<P, M, T> linkedNode;
+        GraphResult childResult;
+        if (child.isNormal()) {
+          linkedNode = child.asNormalNode();
+          childResult = linkedNode.getResult();
+        } else {
+          TransformationNode<P, M, T> transformationNode = child.asTransformationNode();
+          linkedNode = transformationNode.getLinkedNode();
+          childResult = transformationNode.getTransformation().isPlayerSwitching()
+              ? linkedNode.getResult().getOther() : linkedNode.getResult();
+          assertEquals(position.move(move).transform(transformationNode.getTransformation()),
+              ((RetrogradeNormalNode<P, M, T>) linkedNode).getPosition());
+        }
+        resultComputer = resultComputer.withMove(childResult);
+        RetrogradeNormalNode<P, M, T> next = (RetrogradeNormalNode<P, M, T>) linkedNode;
+        if (visited.add(next.id)) {
+          stack.push(next);
+        }
+      }
+      assertEquals(resultComputer.get(), result);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package hu.kazocsaba.gamecracker.graph.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hu.kazocsaba.gamecracker.game.Game;
+import hu.kazocsaba.gamecracker.game.Match;
+import hu.kazocsaba.gamecracker.game.Move;
+import hu.kazocsaba.gamecracker.game.Position;
+import hu.kazocsaba.gamecracker.game.Transformation;
+import hu.kazocsaba.gamecracker.game.reversi.Reversi4;
+import hu.kazocsaba.gamecracker.game.tictactoe.TicTacToe;
+import hu.kazocsaba.gamecracker.graph.Graph;
+import hu.kazocsaba.gamecracker.graph.GraphMatch;
+import hu.kazocsaba.gamecracker.graph.GraphResult;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A base class for graph tests. Subclasses supply the graph implementation through
+ * {@link #createGraph(Game)}; the graphs are solved through their matches for Tic Tac Toe and 4x4
+ * Reversi. The static functions can also be used by tests that need a reference solution of a
+ * graph.
+ *
+ * @author Kazó Csaba
+ */
+public abstract class AbstractGraphTest {
+
+  /**
+   * Creates the graph under test for a game.
+   *
+   * @param game the game
+   * @return a new graph for the game
+   * @throws IOException if the graph cannot be created
+   */
+  protected abstract <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> Graph<P, M, T> createGraph(Game<P, M, T> game)
+      throws IOException;
+
+  @Test(timeout = 20000)
+  public void testTicTacToe() throws IOException {
+    Graph<?, ?, ?> graph = createGraph(new TicTacToe());
+    solve(graph.createMatch());
+
+    assertEquals(GraphResult.DRAW, graph.createMatch().getResult());
+  }
+
+  @Test(timeout = 20000)
+  public void testReversi() throws IOException {
+    Graph<?, ?, ?> graph = createGraph(new Reversi4());
+    solve(graph.createMatch());
+
+    assertEquals(GraphResult.BLACK_WINS, graph.createMatch().getResult());
+  }
+
+  /**
+   * Solves the subtree of the current position of a match, moving in the match until the result of
+   * every visited position is known. Every visited position is checked with
+   * {@link #testMatch(GraphMatch)}, and the result of every final position is checked against its
+   * status.
+   *
+   * @param match the match to solve
+   */
+  public static void solve(GraphMatch<?, ?, ?> match) {
+    solve(match, null);
+  }
+
+  /**
+   * Solves the subtree of the current position of a match. If {@code random} is not {@code null},
+   * the moves are tried in random order, and other threads may be solving the same graph: a result
+   * made known by another thread may not have been propagated yet, so the result of the position
+   * is not checked.
+   *
+   * @param match the match to solve
+   * @param random the source of the order of the moves, or {@code null} to try them in order
+   */
+  public static void solve(GraphMatch<?, ?, ?> match, Random random) {
+    testMatch(match);
+    if (match.getMoveCount() == 0) {
+      assertTrue(match.getPosition().getStatus().isFinal());
+      assertEquals(match.getPosition().getStatus(), match.getResult().asGameStatus());
+    } else {
+      List<Integer> order = new ArrayList<>();
+      for (int i = 0; i < match.getMoveCount(); i++) {
+        order.add(i);
+      }
+      if (random != null) {
+        Collections.shuffle(order, random);
+      }
+      for (int i = 0; i < order.size() && !match.getResult().isKnown(); i++) {
+        match.move(order.get(i));
+        solve(match, random);
+        assertTrue(random != null || match.getResult().isKnown());
+        match.back();
+      }
+    }
+  }
+
+  /**
+   * Visits every position reachable in at most {@code depth} moves from the current position of a
+   * match, creating the nodes on the way.
+   *
+   * @param match the match
+   * @param depth the maximal number of moves to make
+   * @param visited the positions already visited; the positions are added to this set
+   */
+  public static void explore(GraphMatch<?, ?, ?> match, int depth, Set<Object> visited) {
+    if (depth == 0 || !visited.add(match.getPosition())) {
+      return;
+    }
+    for (int i = 0; i < match.getMoveCount(); i++) {
+      match.move(i);
+      explore(match, depth - 1, visited);
+      match.back();
+    }
+  }
+
+  /**
+   * Checks the consistency of a match: its moves are the moves of its current position, and every
+   * point of the match leads to the next one.
+   *
+   * @param match the match to check
+   */
+  public static <
+    P extends Position<P, M, T>,
+    M extends Move<M, T>,
+    T extends Transformation<T>> void testMatch(GraphMatch<P, M, T> match) {
+    {
+      List<M> positionReportedMoves = match.getPosition().getMoves();
+      assertEquals(match.getMoveCount(), positionReportedMoves.size());
+      for (int i = 0; i < match.getMoveCount(); i++) {
+        assertEquals(positionReportedMoves.get(i), match.getMove(i));
+      }
+    }
+
+    int matchLength = match.getLength();
+    int pointCount = 0;
+
+    Match.Point<P, M, T> lastPoint = null;
+    for (Iterator<Match.Point<P, M, T>> it = match.iterator(); it.hasNext();) {
+      Match.Point<P, M, T> point = it.next();
+      pointCount++;
+
+      if (lastPoint != null) {
+        assertTrue(lastPoint.getPosition().getMoves().contains(lastPoint.getMove()));
+        assertEquals(lastPoint.getPosition().move(lastPoint.getMove()), point.getPosition());
+      }
+
+      lastPoint = point;
+      // if there is a move, there should be a next position
+      assertEquals(point.getMove() != null, it.hasNext());
+    }
+    assertEquals(matchLength, pointCount - 1);
+  }
+}